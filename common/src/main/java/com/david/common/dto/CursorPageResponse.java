@@ -0,0 +1,21 @@
+package com.david.common.dto;
+
+import lombok.*;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResponse<T> implements Serializable {
+
+    private int size;
+
+    private String nextCursor;
+
+    private boolean hasNext;
+
+    private T contents;
+}
@@ -16,4 +16,7 @@ public class MediaResponse implements Serializable {
     private String mediaType;
 
     private String mediaUrl;
+
+    // Only filled in by media-service lookups, so callers can check who uploaded the media
+    private String ownerId;
 }
@@ -0,0 +1,21 @@
+package com.david.common.dto.profile;
+
+import lombok.*;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthorSummaryResponse implements Serializable {
+
+    private String userId;
+
+    private String username;
+
+    private String displayName;
+
+    private String profileImageUrl;
+}
@@ -0,0 +1,20 @@
+package com.david.common.dto.tweet;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TweetBatchResponse implements Serializable {
+
+    // In request order, each tweet once
+    private List<TweetResponse> tweets;
+
+    // Requested ids that do not exist, were deleted, or are private to someone else
+    private List<String> missingIds;
+}
@@ -29,8 +29,6 @@ public class TweetCreatedEventPayload implements Serializable {
 
     private Visibility visibility;
 
-    private List<String> likedBy;
-
     private long createdAt;
 
     private long updatedAt;
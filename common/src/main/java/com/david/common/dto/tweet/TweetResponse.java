@@ -1,6 +1,7 @@
 package com.david.common.dto.tweet;
 
 import com.david.common.dto.media.MediaResponse;
+import com.david.common.dto.profile.AuthorSummaryResponse;
 import com.david.common.enums.Visibility;
 import lombok.*;
 
@@ -9,7 +10,7 @@ import java.util.List;
 
 @Getter
 @Setter
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 public class TweetResponse implements Serializable {
@@ -28,9 +29,15 @@ public class TweetResponse implements Serializable {
 
     private Visibility visibility;
 
-    private List<String> likedBy;
+    // Viewer-specific; false when the request carries no user
+    private boolean likedByMe;
+
+    // HyperLogLog estimate, a few percent off and trailing recent views by up to a flush interval
+    private long uniqueViewers;
 
     private long createdAt;
 
     private long updatedAt;
+
+    private AuthorSummaryResponse author;
 }
@@ -7,6 +7,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/follows")
@@ -62,4 +64,14 @@ public class FollowController {
         log.info("FollowController::getFollowing - Following fetched successfully for user ID: {}", followerId);
         return new ApiResponse<>(HttpStatus.OK, "Following fetched successfully", response);
     }
+
+    @PostMapping("/{followerId}/following/among")
+    public ApiResponse<?> getFollowedAmong(
+            @PathVariable String followerId,
+            @RequestBody List<String> followedIds) {
+        log.info("FollowController::getFollowedAmong - Checking {} users for follower ID: {}", followedIds.size(), followerId);
+        var response = followService.getFollowedAmong(followerId, followedIds);
+        log.info("FollowController::getFollowedAmong - Checked successfully for follower ID: {}", followerId);
+        return new ApiResponse<>(HttpStatus.OK, "Followed users fetched successfully", response);
+    }
 }
@@ -6,6 +6,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -19,6 +21,8 @@ public interface FollowRepository extends MongoRepository<UserFollow, String> {
 
     Page<UserFollow> findByFollowerId(String followerId, Pageable pageable);
 
+    List<UserFollow> findByFollowerIdAndFollowedIdIn(String followerId, Collection<String> followedIds);
+
     long countByFollowedId(String followedId);
 
     long countByFollowerId(String followerId);
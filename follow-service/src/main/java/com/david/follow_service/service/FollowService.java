@@ -187,6 +187,18 @@ public class FollowService {
                 .build();
     }
 
+    // Which of the given users userId follows, in one query however long their following list is
+    public List<String> getFollowedAmong(String userId, List<String> followedIds) {
+        if (followedIds.isEmpty()) {
+            return List.of();
+        }
+        List<String> followed = followRepository.findByFollowerIdAndFollowedIdIn(userId, followedIds).stream()
+                .map(UserFollow::getFollowedId)
+                .toList();
+        log.info("FollowService::getFollowedAmong - User ID {} follows {} of {} users", userId, followed.size(), followedIds.size());
+        return followed;
+    }
+
     private Jwt getJwt() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
@@ -9,10 +9,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -36,4 +33,12 @@ public class MediaController {
         return new ApiResponse<>(HttpStatus.OK, "Upload files successfully", result);
     }
 
+    @GetMapping
+    public ApiResponse<List<MediaResponse>> getMedia(@RequestParam("ids") @NotEmpty List<String> ids) {
+        log.info("MediaController::getMedia - Execution started");
+        List<MediaResponse> result = mediaService.getMedia(ids);
+        log.info("MediaController::getMedia - Execution ended");
+        return new ApiResponse<>(HttpStatus.OK, "Fetched media successfully", result);
+    }
+
 }
@@ -12,4 +12,7 @@ public class MediaResponse {
     private String mediaType;
 
     private String mediaUrl;
+
+    // Only filled in by lookups, so callers can check who uploaded the media
+    private String ownerId;
 }
@@ -3,15 +3,19 @@ package com.david.media_service.service;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
+import com.azure.core.util.Context;
 import com.azure.storage.blob.models.BlobHttpHeaders;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
 import com.david.media_service.exception.AzureStorageServiceException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -20,9 +24,11 @@ public class AzureStorageService {
 
     private final BlobServiceClient blobServiceClient;
 
-    public String uploadFile(byte[] fileData, String blobFilename, String contentType, String containerName) {
+    // Streams straight into the blob, so memory use does not grow with the file
+    public String uploadFile(InputStream inputStream, long length, String blobFilename, String contentType,
+                             Map<String, String> metadata, String containerName) {
         log.info("AzureStorageService::uploadFile execution started");
-        if (fileData == null || fileData.length == 0) {
+        if (length <= 0) {
             log.error("AzureStorageService::uploadFile cannot upload empty file data");
             throw new IllegalArgumentException("Cannot upload empty file data");
         }
@@ -31,13 +37,10 @@ public class AzureStorageService {
         containerClient.createIfNotExists();
         BlobClient blobClient = containerClient.getBlobClient(blobFilename);
 
-        try (InputStream inputStream = new ByteArrayInputStream(fileData)) {
-            blobClient.upload(inputStream, fileData.length, true);
-            BlobHttpHeaders headers = new BlobHttpHeaders().setContentType(contentType);
-            blobClient.setHttpHeaders(headers);
-        } catch (IOException e) {
-            log.error("AzureStorageService::uploadFile - IOException");
-            throw new AzureStorageServiceException("IO error while preparing to upload file");
+        try {
+            blobClient.uploadWithResponse(new BlobParallelUploadOptions(inputStream)
+                    .setHeaders(new BlobHttpHeaders().setContentType(contentType))
+                    .setMetadata(metadata), null, Context.NONE);
         } catch (RuntimeException e) {
             log.error("AzureStorageService::uploadFile - RuntimeException");
             throw new AzureStorageServiceException("Failed to upload file to Azure");
@@ -45,4 +48,20 @@ public class AzureStorageService {
         log.info("AzureStorageService::uploadFile execution ended");
         return blobClient.getBlobUrl();
     }
-}
\ No newline at end of file
+
+    public Optional<BlobProperties> getFileProperties(String blobFilename, String containerName) {
+        try {
+            return Optional.of(blobServiceClient.getBlobContainerClient(containerName).getBlobClient(blobFilename).getProperties());
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404) {
+                return Optional.empty();
+            }
+            log.error("AzureStorageService::getFileProperties - Failed to read blob: {}", blobFilename);
+            throw new AzureStorageServiceException("Failed to read file from Azure");
+        }
+    }
+
+    public String getFileUrl(String blobFilename, String containerName) {
+        return blobServiceClient.getBlobContainerClient(containerName).getBlobClient(blobFilename).getBlobUrl();
+    }
+}
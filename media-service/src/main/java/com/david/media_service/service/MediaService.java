@@ -2,30 +2,41 @@ package com.david.media_service.service;
 
 import com.david.media_service.dto.response.MediaResponse;
 import com.david.media_service.exception.MediaServiceException;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.Tika;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MediaService {
 
+    // Blob metadata keys must be valid C# identifiers
+    private static final String OWNER_METADATA_KEY = "ownerId";
+    // Matches the most media a tweet can attach (TweetRequest.mediaIds)
+    private static final int MAX_MEDIA_PER_LOOKUP = 4;
+
     @Value("${spring.cloud.azure.storage.blob.container-name}")
     private String containerName;
 
     private final AzureStorageService azureStorageService;
     private final Tika tika;
+    private final ExecutorService lookupExecutor = Executors.newFixedThreadPool(8);
 
     public List<MediaResponse> uploadFiles(MultipartFile[] files, List<String> allowedContentTypes) {
         log.info("MediaService::uploadFiles - Execution started");
@@ -37,31 +48,28 @@ public class MediaService {
 
         List<MediaResponse> responses = new ArrayList<>();
 
+        Map<String, String> metadata = ownerMetadata();
         for (MultipartFile file : files) {
             String originalFilename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "unknown";
-            byte[] fileData;
-            try (InputStream inputStream = file.getInputStream()) {
-                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                inputStream.transferTo(byteArrayOutputStream);
-                fileData = byteArrayOutputStream.toByteArray();
-                byteArrayOutputStream.close();
+            String optimizeOriginalFilename = originalFilename.replaceAll("[^a-zA-Z0-9._-]", "_");
+            String blobFileName = UUID.randomUUID() + "-" + optimizeOriginalFilename;
+            String contentType;
+            String url;
+            // Tika only reads the first few KB and resets, so the same stream then goes to storage unbuffered
+            try (InputStream inputStream = new BufferedInputStream(file.getInputStream())) {
+                contentType = tika.detect(inputStream, originalFilename);
+                if (allowedContentTypes != null && !allowedContentTypes.isEmpty()) {
+                    if (allowedContentTypes.stream().noneMatch(contentType::startsWith)) {
+                        log.error("MediaService::uploadFiles - Unsupported content type: {} for file: {}", contentType, originalFilename);
+                        throw new MediaServiceException("Unsupported content type: " + contentType + " for file: " + originalFilename);
+                    }
+                }
+                url = azureStorageService.uploadFile(inputStream, file.getSize(), blobFileName, contentType, metadata, containerName);
             } catch (IOException e) {
                 log.error("MediaService::uploadFiles - Error while get content-type for file: {}", originalFilename, e);
                 throw new MediaServiceException("Error while get content-type for file: " + originalFilename);
             }
 
-            String contentType = tika.detect(fileData, originalFilename);
-            if(allowedContentTypes != null && !allowedContentTypes.isEmpty()) {
-                if(allowedContentTypes.stream().noneMatch(contentType::startsWith)) {
-                    log.error("MediaService::uploadFiles - Unsupported content type: {} for file: {}", contentType, originalFilename);
-                    throw new MediaServiceException("Unsupported content type: " + contentType + " for file: " + originalFilename);
-                }
-            }
-
-            String optimizeOriginalFilename = originalFilename.replaceAll("[^a-zA-Z0-9._-]", "_");
-            String blobFileName = UUID.randomUUID() + "-" + optimizeOriginalFilename;
-            String url = azureStorageService.uploadFile(fileData, blobFileName, contentType, containerName);
-
             responses.add(MediaResponse.builder()
                     .mediaId(blobFileName)
                     .mediaType(contentType)
@@ -73,4 +81,43 @@ public class MediaService {
         return responses;
     }
 
+    // Unknown ids are left out; callers compare what comes back against what they asked for. Each id is a blob
+    // round trip, so the count is capped at what a tweet can attach and the lookups run in parallel
+    public List<MediaResponse> getMedia(List<String> mediaIds) {
+        log.info("MediaService::getMedia - Execution started for {} mediaIds", mediaIds.size());
+        List<String> distinctIds = mediaIds.stream().distinct().toList();
+        if (distinctIds.size() > MAX_MEDIA_PER_LOOKUP) {
+            log.error("MediaService::getMedia - Too many mediaIds: {}", distinctIds.size());
+            throw new MediaServiceException("At most " + MAX_MEDIA_PER_LOOKUP + " media can be fetched at once");
+        }
+        List<CompletableFuture<Optional<MediaResponse>>> lookups = distinctIds.stream()
+                .map(mediaId -> CompletableFuture.supplyAsync(() -> azureStorageService.getFileProperties(mediaId, containerName)
+                        .map(properties -> MediaResponse.builder()
+                                .mediaId(mediaId)
+                                .mediaType(properties.getContentType())
+                                .mediaUrl(azureStorageService.getFileUrl(mediaId, containerName))
+                                .ownerId(properties.getMetadata() != null ? properties.getMetadata().get(OWNER_METADATA_KEY) : null)
+                                .build()), lookupExecutor))
+                .toList();
+        List<MediaResponse> responses = lookups.stream()
+                .map(CompletableFuture::join)
+                .flatMap(Optional::stream)
+                .toList();
+        log.info("MediaService::getMedia - Execution ended, found {} of {}", responses.size(), distinctIds.size());
+        return responses;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+
+    private Map<String, String> ownerMetadata() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof Jwt jwt) {
+            return Map.of(OWNER_METADATA_KEY, jwt.getSubject());
+        }
+        return Map.of();
+    }
+
 }
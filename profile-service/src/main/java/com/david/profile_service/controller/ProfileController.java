@@ -2,6 +2,7 @@ package com.david.profile_service.controller;
 
 import com.david.common.dto.ApiResponse;
 import com.david.common.dto.PageResponse;
+import com.david.common.dto.profile.AuthorSummaryResponse;
 import com.david.common.dto.profile.ProfileResponse;
 import com.david.profile_service.dto.request.ChangePasswordRequest;
 import com.david.profile_service.dto.request.EmailUpdateRequest;
@@ -15,6 +16,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @RequiredArgsConstructor
 @RestController
 @Slf4j
@@ -41,6 +44,15 @@ public class ProfileController {
         return response;
     }
 
+    @GetMapping("/batch")
+    public ApiResponse<?> getAuthorsByIds(@RequestParam(name = "ids") List<String> userIds) {
+        log.info("ProfileController::getAuthorsByIds execution started");
+        List<AuthorSummaryResponse> authors = profileService.getAuthorsByIds(userIds);
+        ApiResponse<?> response = new ApiResponse<>(HttpStatus.OK, "Get profiles successfully", authors);
+        log.info("ProfileController::getAuthorsByIds execution ended");
+        return response;
+    }
+
     @GetMapping("/u/{username}")
     public ApiResponse<?> getProfileUsername(@Valid @PathVariable(name = "username") String username) {
         log.info("ProfileController::getProfileByUsername execution started");
@@ -1,5 +1,6 @@
 package com.david.profile_service.mapper;
 
+import com.david.common.dto.profile.AuthorSummaryResponse;
 import com.david.common.dto.profile.ProfileCreatedEventPayload;
 import com.david.common.dto.profile.ProfileResponse;
 import com.david.profile_service.entity.Profile;
@@ -10,5 +11,7 @@ public interface ProfileMapper {
 
     ProfileResponse toDto(Profile profile);
 
+    AuthorSummaryResponse toAuthorSummary(Profile profile);
+
     Profile toEntity(ProfileCreatedEventPayload profileCreatedEventPayload);
 }
@@ -4,6 +4,8 @@ import com.david.profile_service.entity.Profile;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +16,6 @@ public interface ProfileRepository extends JpaRepository<Profile, Long> {
     Optional<Profile> findByUsername(String username);
 
     Optional<Profile> findByUserId(String userId);
+
+    List<Profile> findAllByUserIdIn(Collection<String> userIds);
 }
@@ -4,6 +4,7 @@ import com.david.common.dto.ApiEventMessage;
 import com.david.common.dto.FeignApiResponse;
 import com.david.common.dto.PageResponse;
 import com.david.common.dto.media.MediaResponse;
+import com.david.common.dto.profile.AuthorSummaryResponse;
 import com.david.common.dto.profile.ProfileCreatedEventPayload;
 import com.david.common.dto.profile.ProfileResponse;
 import com.david.common.dto.profile.ProfileUpdatedEventPayload;
@@ -51,6 +52,9 @@ import java.util.UUID;
 @Slf4j
 public class ProfileService {
 
+    // Bounds the IN list of one lookup; callers hydrating more authors than this split their request
+    public static final int MAX_PROFILES_PER_LOOKUP = 100;
+
     private final ProfileRepository profileRepository;
     private final MediaClient mediaClient;
     private final Keycloak keycloakAdminClient;
@@ -108,6 +112,26 @@ public class ProfileService {
         return profileMapper.toDto(profile);
     }
 
+    // Author hydration for other services; only the public summary is returned, never email or date of birth
+    @PreAuthorize("isAuthenticated()")
+    public List<AuthorSummaryResponse> getAuthorsByIds(List<String> userIds) {
+        log.info("ProfileService::getAuthorsByIds - Execution started. [count: {}]", userIds.size());
+        List<String> distinctIds = userIds.stream().distinct().toList();
+        if (distinctIds.isEmpty()) {
+            return List.of();
+        }
+        if (distinctIds.size() > MAX_PROFILES_PER_LOOKUP) {
+            log.warn("ProfileService::getAuthorsByIds - Rejected lookup of {} profiles", distinctIds.size());
+            throw new ProfileServiceException("At most " + MAX_PROFILES_PER_LOOKUP + " profiles can be fetched at once");
+        }
+        List<AuthorSummaryResponse> authors = profileRepository.findAllByUserIdIn(distinctIds).stream()
+                .map(profileMapper::toAuthorSummary)
+                .toList();
+        log.info("ProfileService::getAuthorsByIds - Execution ended successfully. Found {} of {} profiles.",
+                authors.size(), distinctIds.size());
+        return authors;
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     public PageResponse<?> getAllProfile(int page, int size, String sortBy) {
         log.info("ProfileService::getAllProfile - Execution started. [page: {}, size: {}, sortBy: {}]", page, size, sortBy);
@@ -0,0 +1,105 @@
+package com.david.timeline_service.configuration;
+
+import com.david.timeline_service.listener.FanoutPartitionListener;
+import com.david.timeline_service.service.FanoutPartitionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.rabbit.listener.SimpleRabbitListenerEndpoint;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+@Configuration
+@ConditionalOnProperty(name = "app.timeline.fanout.partitions.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class FanoutPartitionConfig implements RabbitListenerConfigurer {
+
+    private final FanoutPartitionService fanoutPartitionService;
+    private final FanoutPartitionListener fanoutPartitionListener;
+    private final AmqpAdmin amqpAdmin;
+    private final MeterRegistry meterRegistry;
+    private final DirectExchange deadLetterExchange;
+    private final RetryOperationsInterceptor listenerRetryInterceptor;
+    private final SimpleRabbitListenerContainerFactoryConfigurer containerFactoryConfigurer;
+    private final ConnectionFactory connectionFactory;
+
+    // Single active consumer: across all instances only one consumer reads a partition at a time.
+    // A task that keeps failing is dead-lettered rather than requeued, so it cannot stall its partition
+    @Bean
+    public Declarables fanoutPartitionDeclarables() {
+        DirectExchange exchange = ExchangeBuilder
+                .directExchange(fanoutPartitionService.getExchange())
+                .durable(true).build();
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(exchange);
+        Queue deadLetterQueue = QueueBuilder
+                .durable(fanoutPartitionService.deadLetterQueueName())
+                .build();
+        declarables.add(deadLetterQueue);
+        declarables.add(BindingBuilder.bind(deadLetterQueue)
+                .to(deadLetterExchange)
+                .with(fanoutPartitionService.deadLetterQueueName()));
+        for (int partition = 0; partition < fanoutPartitionService.getPartitionCount(); partition++) {
+            Queue queue = QueueBuilder
+                    .durable(fanoutPartitionService.queueName(partition))
+                    .singleActiveConsumer()
+                    .deadLetterExchange(deadLetterExchange.getName())
+                    .deadLetterRoutingKey(fanoutPartitionService.deadLetterQueueName())
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue)
+                    .to(exchange)
+                    .with(fanoutPartitionService.routingKey(partition)));
+        }
+        return new Declarables(declarables);
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        SimpleRabbitListenerContainerFactory containerFactory = fanoutContainerFactory();
+        for (int partition = 0; partition < fanoutPartitionService.getPartitionCount(); partition++) {
+            int workerPartition = partition;
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("timeline-fanout-partition-" + partition);
+            endpoint.setQueueNames(fanoutPartitionService.queueName(partition));
+            endpoint.setConcurrency("1");
+            endpoint.setMessageListener(message -> fanoutPartitionListener.handleFanoutTask(workerPartition, message));
+            registrar.registerEndpoint(endpoint, containerFactory);
+            registerDepthGauge(partition);
+        }
+    }
+
+    // Bounded in-place retries, then reject without requeue so the broker dead-letters the task
+    private SimpleRabbitListenerContainerFactory fanoutContainerFactory() {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        containerFactoryConfigurer.configure(factory, connectionFactory);
+        factory.setAdviceChain(listenerRetryInterceptor);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    // Read from the broker, so the depth covers tasks published by every instance
+    private void registerDepthGauge(int partition) {
+        String queueName = fanoutPartitionService.queueName(partition);
+        Gauge.builder("timeline.fanout.partition.queue.depth", amqpAdmin, admin -> {
+                    Properties properties = admin.getQueueProperties(queueName);
+                    Object messageCount = properties == null ? null : properties.get(RabbitAdmin.QUEUE_MESSAGE_COUNT);
+                    return messageCount instanceof Number count ? count.doubleValue() : Double.NaN;
+                })
+                .tag("partition", String.valueOf(partition))
+                .register(meterRegistry);
+    }
+}
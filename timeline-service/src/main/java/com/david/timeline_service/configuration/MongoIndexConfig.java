@@ -0,0 +1,56 @@
+package com.david.timeline_service.configuration;
+
+import com.david.timeline_service.entity.TimelineEntry;
+import com.david.timeline_service.service.TimelineMigrationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexConfig {
+
+    private final MongoTemplate mongoTemplate;
+    private final TimelineMigrationService timelineMigrationService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(TimelineEntry.class).ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("tweetAt", Sort.Direction.DESC)
+                .on("tweetId", Sort.Direction.DESC)
+                .named("userId_tweetAt_tweetId"));
+        mongoTemplate.indexOps(TimelineEntry.class).ensureIndex(new Index()
+                .on("expireAt", Sort.Direction.ASC)
+                .expire(0)
+                .named("expireAt_ttl"));
+        log.info("MongoIndexConfig::ensureIndexes - Timeline indexes ensured");
+        ensureLegacyIndex();
+    }
+
+    // The legacy entity never indexed userId; the per-user read fallback only turns on once this index exists
+    private void ensureLegacyIndex() {
+        String legacyCollection = TimelineMigrationService.LEGACY_COLLECTION;
+        try {
+            if (!mongoTemplate.collectionExists(legacyCollection)) {
+                return;
+            }
+            mongoTemplate.indexOps(legacyCollection).ensureIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("userId_id"));
+            log.info("MongoIndexConfig::ensureLegacyIndex - Legacy timeline index ensured");
+        } catch (DataAccessException e) {
+            log.error("MongoIndexConfig::ensureLegacyIndex - Legacy fallback stays off. Error: {}", e.getMessage());
+            return;
+        }
+        timelineMigrationService.enableLegacyFallback();
+    }
+}
@@ -1,10 +1,18 @@
 package com.david.timeline_service.configuration;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.amqp.rabbit.retry.MessageRecoverer;
+import org.springframework.amqp.rabbit.retry.RejectAndDontRequeueRecoverer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
 
 @Configuration
 public class RabbitMqConfig {
@@ -13,6 +21,10 @@ public class RabbitMqConfig {
     private String tweetEventsExchange;
     @Value("${app.rabbitmq.exchange.follow-events}")
     private String followEventsExchange;
+    @Value("${app.rabbitmq.exchange.comment-events:comment.events}")
+    private String commentEventsExchange;
+    @Value("${app.rabbitmq.exchange.profile-events:profile.events}")
+    private String profileEventsExchange;
 
     @Value("${app.rabbitmq.queue.tweet-created}")
     private String tweetCreatedQueue;
@@ -20,6 +32,20 @@ public class RabbitMqConfig {
     private String tweetCreatedRoutingKey;
     @Value("${app.rabbitmq.queue.unfollowed}")
     private String unfollowedQueue;
+    @Value("${app.rabbitmq.queue.timeline-tweet-deleted:timeline.tweet.deleted.queue}")
+    private String tweetDeletedQueue;
+    @Value("${app.rabbitmq.routing-key.tweet-deleted}")
+    private String tweetDeletedRoutingKey;
+    @Value("${app.rabbitmq.queue.timeline-tweet-liked:timeline.tweet.liked.queue}")
+    private String tweetLikedQueue;
+    @Value("${app.rabbitmq.routing-key.tweet-liked:tweet.liked}")
+    private String tweetLikedRoutingKey;
+    @Value("${app.rabbitmq.queue.timeline-comment-created:timeline.comment.created.queue}")
+    private String commentCreatedQueue;
+    @Value("${app.rabbitmq.routing-key.comment-created:comment.created}")
+    private String commentCreatedRoutingKey;
+    @Value("${app.rabbitmq.routing-key.profile-updated:profile.updated}")
+    private String profileUpdatedRoutingKey;
 
     @Value("${app.rabbitmq.queue.followed}")
     private String followedQueue;
@@ -28,6 +54,23 @@ public class RabbitMqConfig {
     @Value("${app.rabbitmq.routing-key.unfollowed}")
     private String unfollowedRoutingKey;
 
+    @Value("${app.rabbitmq.exchange.dead-letter:timeline.dlx}")
+    private String deadLetterExchange;
+
+    @Value("${app.timeline.listener.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+    @Value("${app.timeline.listener.retry.initial-interval-ms:1000}")
+    private long retryInitialIntervalMs;
+    @Value("${app.timeline.listener.retry.multiplier:2.0}")
+    private double retryMultiplier;
+    @Value("${app.timeline.listener.retry.max-interval-ms:10000}")
+    private long retryMaxIntervalMs;
+
+    @Value("${app.timeline.batch-listener.size:100}")
+    private int batchListenerSize;
+    @Value("${app.timeline.batch-listener.receive-timeout-ms:500}")
+    private long batchListenerReceiveTimeoutMs;
+
     // Exchanges
     @Bean
     public TopicExchange tweetExchange() {
@@ -43,18 +86,96 @@ public class RabbitMqConfig {
                 .durable(true).build();
     }
 
+    @Bean
+    public TopicExchange commentExchange() {
+        return ExchangeBuilder
+                .topicExchange(commentEventsExchange)
+                .durable(true).build();
+    }
+
+    @Bean
+    public TopicExchange profileExchange() {
+        return ExchangeBuilder
+                .topicExchange(profileEventsExchange)
+                .durable(true).build();
+    }
+
+    // Messages a listener gave up on are routed here, each to the ".dlq" queue named after its source queue
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return ExchangeBuilder
+                .directExchange(deadLetterExchange)
+                .durable(true).build();
+    }
+
+    public static String deadLetterQueueName(String queue) {
+        return queue + ".dlq";
+    }
+
     // Queues
     @Bean
     public Queue tweetCreatedQueue() {
         return QueueBuilder
                 .durable(tweetCreatedQueue)
+                .deadLetterExchange(deadLetterExchange)
+                .deadLetterRoutingKey(deadLetterQueueName(tweetCreatedQueue))
+                .build();
+    }
+
+    @Bean
+    public Queue tweetCreatedDeadLetterQueue() {
+        return QueueBuilder
+                .durable(deadLetterQueueName(tweetCreatedQueue))
                 .build();
     }
 
+    @Bean
+    public Queue tweetDeletedQueue() {
+        return QueueBuilder
+                .durable(tweetDeletedQueue)
+                .build();
+    }
+
+    @Bean
+    public Queue tweetLikedQueue() {
+        return QueueBuilder
+                .durable(tweetLikedQueue)
+                .build();
+    }
+
+    @Bean
+    public Queue commentCreatedQueue() {
+        return QueueBuilder
+                .durable(commentCreatedQueue)
+                .build();
+    }
+
+    // Every instance keeps its own hydrated tweet cache, so each one needs its own copy of deletes to evict from it;
+    // the durable queue above is shared and only drives ranking cleanup
+    @Bean
+    public Queue tweetDeletedCacheQueue() {
+        return new AnonymousQueue();
+    }
+
+    // Every instance keeps its own author cache, so each one needs its own copy of profile updates
+    @Bean
+    public Queue profileUpdatedQueue() {
+        return new AnonymousQueue();
+    }
+
     @Bean
     public Queue followedQueue() {
         return QueueBuilder
                 .durable(followedQueue)
+                .deadLetterExchange(deadLetterExchange)
+                .deadLetterRoutingKey(deadLetterQueueName(followedQueue))
+                .build();
+    }
+
+    @Bean
+    public Queue followedDeadLetterQueue() {
+        return QueueBuilder
+                .durable(deadLetterQueueName(followedQueue))
                 .build();
     }
 
@@ -73,6 +194,41 @@ public class RabbitMqConfig {
                 .with(tweetCreatedRoutingKey);
     }
 
+    @Bean
+    public Binding tweetDeletedBinding() {
+        return BindingBuilder.bind(tweetDeletedQueue())
+                .to(tweetExchange())
+                .with(tweetDeletedRoutingKey);
+    }
+
+    @Bean
+    public Binding tweetDeletedCacheBinding() {
+        return BindingBuilder.bind(tweetDeletedCacheQueue())
+                .to(tweetExchange())
+                .with(tweetDeletedRoutingKey);
+    }
+
+    @Bean
+    public Binding tweetLikedBinding() {
+        return BindingBuilder.bind(tweetLikedQueue())
+                .to(tweetExchange())
+                .with(tweetLikedRoutingKey);
+    }
+
+    @Bean
+    public Binding commentCreatedBinding() {
+        return BindingBuilder.bind(commentCreatedQueue())
+                .to(commentExchange())
+                .with(commentCreatedRoutingKey);
+    }
+
+    @Bean
+    public Binding profileUpdatedBinding() {
+        return BindingBuilder.bind(profileUpdatedQueue())
+                .to(profileExchange())
+                .with(profileUpdatedRoutingKey);
+    }
+
     @Bean
     public Binding followedBinding() {
         return BindingBuilder.bind(followedQueue())
@@ -87,6 +243,57 @@ public class RabbitMqConfig {
                 .with(unfollowedRoutingKey);
     }
 
+    @Bean
+    public Binding tweetCreatedDeadLetterBinding() {
+        return BindingBuilder.bind(tweetCreatedDeadLetterQueue())
+                .to(deadLetterExchange())
+                .with(deadLetterQueueName(tweetCreatedQueue));
+    }
+
+    @Bean
+    public Binding followedDeadLetterBinding() {
+        return BindingBuilder.bind(followedDeadLetterQueue())
+                .to(deadLetterExchange())
+                .with(deadLetterQueueName(followedQueue));
+    }
+
+    // Retries a failed delivery in place a bounded number of times, then rejects it without requeueing so the broker
+    // dead-letters it instead of redelivering it forever
+    @Bean
+    public RetryOperationsInterceptor listenerRetryInterceptor() {
+        return retryInterceptor(new RejectAndDontRequeueRecoverer());
+    }
+
+    // Delivers up to batch-listener.size messages at once, or fewer once no message arrived for receive-timeout-ms;
+    // the whole batch is acked only after the listener returns
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchListenerSize);
+        factory.setPrefetchCount(batchListenerSize);
+        factory.setReceiveTimeout(batchListenerReceiveTimeoutMs);
+        // A batch that keeps failing is rejected as a whole; single unreadable messages never get this far,
+        // the listener dead-letters those on their own
+        MessageRecoverer rejecter = new RejectAndDontRequeueRecoverer();
+        MessageBatchRecoverer batchRecoverer = (messages, cause) -> rejecter.recover(messages.get(0), cause);
+        factory.setAdviceChain(retryInterceptor(batchRecoverer));
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    private RetryOperationsInterceptor retryInterceptor(MessageRecoverer recoverer) {
+        return RetryInterceptorBuilder.stateless()
+                .maxAttempts(retryMaxAttempts)
+                .backOffOptions(retryInitialIntervalMs, retryMultiplier, retryMaxIntervalMs)
+                .recoverer(recoverer)
+                .build();
+    }
+
     @Bean
     public Jackson2JsonMessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -0,0 +1,21 @@
+package com.david.timeline_service.configuration;
+
+import com.david.timeline_service.service.TimelineStreamService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class TimelineStreamConfig {
+
+    @Bean
+    public RedisMessageListenerContainer timelineStreamListenerContainer(
+            RedisConnectionFactory redisConnectionFactory, TimelineStreamService timelineStreamService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(timelineStreamService, new ChannelTopic(TimelineStreamService.BROADCAST_CHANNEL));
+        return container;
+    }
+}
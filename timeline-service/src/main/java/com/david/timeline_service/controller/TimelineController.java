@@ -1,13 +1,19 @@
 package com.david.timeline_service.controller;
 
 import com.david.common.dto.ApiResponse;
+import com.david.timeline_service.service.TimelineMigrationService;
+import com.david.timeline_service.service.TimelineRebuildService;
 import com.david.timeline_service.service.TimelineService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequiredArgsConstructor
@@ -15,6 +21,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class TimelineController {
 
     private final TimelineService timelineService;
+    private final TimelineMigrationService timelineMigrationService;
+    private final TimelineRebuildService timelineRebuildService;
 
     @GetMapping("/api/v1/timeline")
     public ApiResponse<?> getTimeline(
@@ -26,4 +34,63 @@ public class TimelineController {
         log.info("TimelineController::getTimeline - Timeline fetched successfully");
         return new ApiResponse<>(HttpStatus.OK, "Timeline fetched successfully", response);
     }
+
+    @GetMapping("/api/v1/timeline/cursor")
+    public ApiResponse<?> getTimelineByCursor(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "10") int size) {
+        log.info("TimelineController::getTimelineByCursor - Fetching timeline");
+        var response = timelineService.getTimelineByCursor(cursor, size);
+        log.info("TimelineController::getTimelineByCursor - Timeline fetched successfully");
+        return new ApiResponse<>(HttpStatus.OK, "Timeline fetched successfully", response);
+    }
+
+    @GetMapping("/api/v1/timeline/ranked")
+    public ApiResponse<?> getRankedTimeline(
+            @RequestParam(name = "page", defaultValue = "1") int page,
+            @RequestParam(name = "size", defaultValue = "10") int size) {
+        log.info("TimelineController::getRankedTimeline - Fetching ranked timeline");
+        var response = timelineService.getRankedTimeline(page, size);
+        log.info("TimelineController::getRankedTimeline - Ranked timeline fetched successfully");
+        return new ApiResponse<>(HttpStatus.OK, "Timeline fetched successfully", response);
+    }
+
+    @GetMapping("/api/v1/timeline/new-count")
+    public ApiResponse<?> countNewEntries(@RequestParam(name = "since") long since) {
+        log.info("TimelineController::countNewEntries - Counting new timeline entries");
+        var response = timelineService.countNewEntries(since);
+        log.info("TimelineController::countNewEntries - New timeline entries counted successfully");
+        return new ApiResponse<>(HttpStatus.OK, "New timeline entries counted successfully", response);
+    }
+
+    @GetMapping(value = "/api/v1/timeline/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTimeline() {
+        log.info("TimelineController::streamTimeline - Opening timeline stream");
+        return timelineService.streamTimeline();
+    }
+
+    @PostMapping("/api/v1/timeline/admin/migrations/compact")
+    public ApiResponse<?> migrateLegacyEntries(
+            @RequestParam(name = "batchSize", defaultValue = "1000") int batchSize) {
+        log.info("TimelineController::migrateLegacyEntries - Migrating legacy timeline entries");
+        var response = timelineMigrationService.migrateLegacyEntries(batchSize);
+        log.info("TimelineController::migrateLegacyEntries - Legacy timeline entries migrated successfully");
+        return new ApiResponse<>(HttpStatus.OK, "Timeline entries migrated successfully", response);
+    }
+
+    @PostMapping("/api/v1/timeline/admin/rebuilds/{userId}")
+    public ApiResponse<?> rebuildTimeline(@PathVariable("userId") String userId) {
+        log.info("TimelineController::rebuildTimeline - Rebuilding timeline for userId: {}", userId);
+        var response = timelineRebuildService.rebuildTimeline(userId);
+        log.info("TimelineController::rebuildTimeline - Timeline rebuilt successfully for userId: {}", userId);
+        return new ApiResponse<>(HttpStatus.OK, "Timeline rebuilt successfully", response);
+    }
+
+    @PostMapping("/api/v1/timeline/admin/rebuilds")
+    public ApiResponse<?> rebuildAllTimelines() {
+        log.info("TimelineController::rebuildAllTimelines - Starting timeline rebuild job");
+        timelineRebuildService.rebuildAllTimelines();
+        log.info("TimelineController::rebuildAllTimelines - Timeline rebuild job started");
+        return new ApiResponse<>(HttpStatus.ACCEPTED, "Timeline rebuild job started");
+    }
 }
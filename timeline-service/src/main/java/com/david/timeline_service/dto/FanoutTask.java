@@ -0,0 +1,34 @@
+package com.david.timeline_service.dto;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FanoutTask implements Serializable {
+
+    private int partition;
+
+    private String authorId;
+
+    private List<String> recipientIds;
+
+    private List<TweetRef> tweets;
+
+    @Getter
+    @Setter
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TweetRef implements Serializable {
+
+        private String tweetId;
+
+        private long tweetAt;
+    }
+}
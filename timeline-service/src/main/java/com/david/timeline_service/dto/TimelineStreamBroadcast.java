@@ -0,0 +1,37 @@
+package com.david.timeline_service.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+// Sent between instances over Redis pub/sub: either new timeline entries for users with an open stream somewhere,
+// or, with streamUserId set, notice that a stream was just opened
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimelineStreamBroadcast {
+
+    private String origin;
+
+    private String streamUserId;
+
+    private List<Update> updates;
+
+    @Getter
+    @Setter
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Update {
+
+        private String userId;
+
+        private String tweetId;
+
+        private String tweetOwnerId;
+
+        private long tweetAt;
+    }
+}
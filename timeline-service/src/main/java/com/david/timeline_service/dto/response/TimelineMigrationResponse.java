@@ -0,0 +1,17 @@
+package com.david.timeline_service.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimelineMigrationResponse {
+
+    private long migratedEntries;
+
+    private long batches;
+
+    private long durationMs;
+}
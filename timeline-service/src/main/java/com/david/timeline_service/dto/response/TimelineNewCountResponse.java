@@ -0,0 +1,16 @@
+package com.david.timeline_service.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimelineNewCountResponse {
+
+    private long count;
+
+    // True when at least `count` entries are newer and counting stopped at the cap
+    private boolean capped;
+}
@@ -0,0 +1,21 @@
+package com.david.timeline_service.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimelineRebuildResponse {
+
+    private String userId;
+
+    private long followees;
+
+    private long writtenEntries;
+
+    private long removedEntries;
+
+    private long durationMs;
+}
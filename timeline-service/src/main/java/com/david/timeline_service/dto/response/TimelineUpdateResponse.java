@@ -0,0 +1,17 @@
+package com.david.timeline_service.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimelineUpdateResponse {
+
+    private String tweetId;
+
+    private String tweetOwnerId;
+
+    private long tweetAt;
+}
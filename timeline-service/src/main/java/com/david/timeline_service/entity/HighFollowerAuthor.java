@@ -0,0 +1,25 @@
+package com.david.timeline_service.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document(collection = "high_follower_authors")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HighFollowerAuthor {
+
+    @Id
+    private String authorId;
+
+    private long followerCount;
+
+    @LastModifiedDate
+    private long updatedAt;
+}
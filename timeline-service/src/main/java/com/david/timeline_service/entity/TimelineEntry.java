@@ -4,28 +4,40 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
-@Document(collection = "timeline_entries")
+import java.time.Instant;
+
+@Document(collection = "timeline_entries_v2")
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class TimelineEntry {
 
+    // userId + ":" + tweetId, so a replayed event maps onto the same document
     @Id
     private String id;
 
+    @Field("u")
     private String userId;
 
+    @Field("t")
     private String tweetId;
 
+    @Field("o")
     private String tweetOwnerId;
 
+    @Field("a")
     private long tweetAt;
 
-    @CreatedDate
-    private long createdAt;
+    // Backs the TTL index, so entries older than the retention window are dropped by Mongo itself
+    @Field("e")
+    private Instant expireAt;
+
+    public static String idOf(String userId, String tweetId) {
+        return userId + ":" + tweetId;
+    }
 }
@@ -0,0 +1,31 @@
+package com.david.timeline_service.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+@Document(collection = "tweet_engagements")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TweetEngagement {
+
+    @Id
+    private String tweetId;
+
+    private long likes;
+
+    private long comments;
+
+    // Weighted engagement on a log scale, refreshed on every like/comment event
+    private double engagementScore;
+
+    // Ids of the latest events counted, so a redelivered one is not counted again; never read for ranking
+    private List<String> recentEventIds;
+}
@@ -0,0 +1,45 @@
+package com.david.timeline_service.listener;
+
+import com.david.timeline_service.dto.FanoutTask;
+import com.david.timeline_service.service.TimelineService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Write failures are not swallowed: the task is retried in place a bounded number of times, which is safe because
+// the upserts are idempotent, and then dead-lettered so the partition moves on
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FanoutPartitionListener {
+
+    private final TimelineService timelineService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public void handleFanoutTask(int partition, Message message) {
+        FanoutTask task;
+        try {
+            task = objectMapper.readValue(message.getBody(), FanoutTask.class);
+        } catch (IOException e) {
+            log.error("FanoutPartitionListener::handleFanoutTask - Unreadable fan-out task on partition {}: {}",
+                    partition, e.getMessage());
+            throw new AmqpRejectAndDontRequeueException("Unreadable fan-out task", e);
+        }
+        String partitionTag = String.valueOf(partition);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long written = timelineService.writeFanoutTask(task);
+        sample.stop(meterRegistry.timer("timeline.fanout.partition.duration", "partition", partitionTag));
+        meterRegistry.counter("timeline.fanout.partition.tasks", "partition", partitionTag).increment();
+        meterRegistry.counter("timeline.fanout.partition.entries.written", "partition", partitionTag).increment(written);
+        log.info("FanoutPartitionListener::handleFanoutTask - Fan-out task processed on partition {}: authorId: {}, recipients: {}, entries: {}",
+                partition, task.getAuthorId(), task.getRecipientIds().size(), written);
+    }
+}
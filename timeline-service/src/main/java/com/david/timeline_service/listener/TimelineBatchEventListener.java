@@ -0,0 +1,87 @@
+package com.david.timeline_service.listener;
+
+import com.david.common.dto.ApiEventMessage;
+import com.david.common.dto.follow.FollowedEventPayload;
+import com.david.common.dto.tweet.TweetCreatedEventPayload;
+import com.david.timeline_service.configuration.RabbitMqConfig;
+import com.david.timeline_service.service.TimelineService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Messages are converted one at a time, so an unreadable one is dead-lettered on its own instead of failing the batch.
+// Write failures are not swallowed: the batch is retried a bounded number of times, then dead-lettered as a whole,
+// which is safe to replay because timeline writes are idempotent upserts
+@Component
+@ConditionalOnProperty(name = "app.timeline.batch-listener.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineBatchEventListener {
+
+    private static final TypeReference<ApiEventMessage<FollowedEventPayload>> FOLLOWED_EVENT = new TypeReference<>() {};
+    private static final TypeReference<ApiEventMessage<TweetCreatedEventPayload>> TWEET_CREATED_EVENT = new TypeReference<>() {};
+
+    private final TimelineService timelineService;
+    private final ObjectMapper objectMapper;
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${app.rabbitmq.exchange.dead-letter:timeline.dlx}")
+    private String deadLetterExchange;
+
+    @RabbitListener(queues = "${app.rabbitmq.queue.followed}", containerFactory = "batchListenerContainerFactory")
+    public void handleFollowedEvents(List<Message> messages) {
+        log.info("TimelineBatchEventListener::handleFollowedEvents - Received {} followed events", messages.size());
+        List<FollowedEventPayload> payloads = readAll(messages, FOLLOWED_EVENT).stream()
+                .filter(message -> "FOLLOWED".equals(message.getEventType()) && message.getPayload() != null)
+                .map(ApiEventMessage::getPayload)
+                .toList();
+        if (!payloads.isEmpty()) {
+            timelineService.handleFollowedBatch(payloads);
+        }
+        log.info("TimelineBatchEventListener::handleFollowedEvents - Followed events processed successfully: {}", messages.size());
+    }
+
+    @RabbitListener(queues = "${app.rabbitmq.queue.tweet-created}", containerFactory = "batchListenerContainerFactory")
+    public void handleNewTweetEvents(List<Message> messages) {
+        log.info("TimelineBatchEventListener::handleNewTweetEvents - Received {} new tweet events", messages.size());
+        List<TweetCreatedEventPayload> payloads = readAll(messages, TWEET_CREATED_EVENT).stream()
+                .filter(message -> "TWEET_CREATED".equals(message.getEventType()) && message.getPayload() != null)
+                .map(ApiEventMessage::getPayload)
+                .toList();
+        if (!payloads.isEmpty()) {
+            timelineService.handleNewTweets(payloads);
+        }
+        log.info("TimelineBatchEventListener::handleNewTweetEvents - New tweet events processed successfully: {}", messages.size());
+    }
+
+    private <T> List<T> readAll(List<Message> messages, TypeReference<T> type) {
+        List<T> events = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            try {
+                events.add(objectMapper.readValue(message.getBody(), type));
+            } catch (IOException e) {
+                deadLetter(message, e);
+            }
+        }
+        return events;
+    }
+
+    // Mirrors what the broker does for a rejected message: same DLX, routed to the source queue's DLQ
+    private void deadLetter(Message message, IOException cause) {
+        String queue = message.getMessageProperties().getConsumerQueue();
+        log.error("TimelineBatchEventListener::deadLetter - Dead-lettering unreadable message from {}: {}",
+                queue, cause.getMessage());
+        rabbitTemplate.send(deadLetterExchange, RabbitMqConfig.deadLetterQueueName(queue), message);
+    }
+}
@@ -1,8 +1,11 @@
 package com.david.timeline_service.listener;
 
 import com.david.common.dto.ApiEventMessage;
+import com.david.common.dto.comment.CommentCreatedEventPayload;
 import com.david.common.dto.follow.FollowedEventPayload;
+import com.david.common.dto.profile.ProfileUpdatedEventPayload;
 import com.david.common.dto.tweet.TweetCreatedEventPayload;
+import com.david.common.dto.tweet.TweetLikedEventPayload;
 import com.david.timeline_service.service.TimelineService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,7 +21,7 @@ public class TimelineEventListener {
     private final TimelineService timelineService;
 
 
-    @RabbitListener(queues = "${app.rabbitmq.queue.followed}")
+    @RabbitListener(queues = "${app.rabbitmq.queue.followed}", autoStartup = "#{!${app.timeline.batch-listener.enabled:false}}")
     public void handleFollowedEvent(@Payload ApiEventMessage<FollowedEventPayload> message) {
         log.info("Received followed event: {}", message.getEventId());
         try {
@@ -52,7 +55,7 @@ public class TimelineEventListener {
         log.info("Unfollowed event processed successfully: {}", message.getEventId());
     }
 
-    @RabbitListener(queues = "${app.rabbitmq.queue.tweet-created}")
+    @RabbitListener(queues = "${app.rabbitmq.queue.tweet-created}", autoStartup = "#{!${app.timeline.batch-listener.enabled:false}}")
     public void handleNewTweetEvent(@Payload ApiEventMessage<TweetCreatedEventPayload> message) {
         log.info("Received new tweet event: {}", message.getEventId());
         try {
@@ -68,4 +71,73 @@ public class TimelineEventListener {
         }
         log.info("New tweet event processed successfully: {}", message.getEventId());
     }
+
+    @RabbitListener(queues = "${app.rabbitmq.queue.timeline-tweet-deleted:timeline.tweet.deleted.queue}")
+    public void handleTweetDeletedEvent(@Payload ApiEventMessage<String> message) {
+        log.info("Received tweet deleted event: {}", message.getEventId());
+        try {
+            if ("TWEET_DELETED".equals(message.getEventType())) {
+                log.info("Processing tweet deleted event for tweetId: {}", message.getPayload());
+                timelineService.handleTweetDeleted(message.getPayload());
+            }
+        } catch (Exception e) {
+            log.error("Error processing tweet deleted event: {}", e.getMessage(), e);
+        }
+        log.info("Tweet deleted event processed successfully: {}", message.getEventId());
+    }
+
+    @RabbitListener(queues = "#{tweetDeletedCacheQueue.name}")
+    public void handleTweetDeletedCacheEvent(@Payload ApiEventMessage<String> message) {
+        log.info("Received tweet deleted cache event: {}", message.getEventId());
+        try {
+            if ("TWEET_DELETED".equals(message.getEventType())) {
+                timelineService.evictDeletedTweet(message.getPayload());
+            }
+        } catch (Exception e) {
+            log.error("Error processing tweet deleted cache event: {}", e.getMessage(), e);
+        }
+        log.info("Tweet deleted cache event processed successfully: {}", message.getEventId());
+    }
+
+    @RabbitListener(queues = "${app.rabbitmq.queue.timeline-tweet-liked:timeline.tweet.liked.queue}")
+    public void handleTweetLikedEvent(@Payload ApiEventMessage<TweetLikedEventPayload> message) {
+        log.info("Received tweet liked event: {}", message.getEventId());
+        try {
+            if ("TWEET_LIKED".equals(message.getEventType())) {
+                log.info("Processing tweet liked event for tweetId: {}", message.getPayload().getTweetId());
+                timelineService.handleTweetLiked(message.getEventId(), message.getPayload());
+            }
+        } catch (Exception e) {
+            log.error("Error processing tweet liked event: {}", e.getMessage(), e);
+        }
+        log.info("Tweet liked event processed successfully: {}", message.getEventId());
+    }
+
+    @RabbitListener(queues = "${app.rabbitmq.queue.timeline-comment-created:timeline.comment.created.queue}")
+    public void handleCommentCreatedEvent(@Payload ApiEventMessage<CommentCreatedEventPayload> message) {
+        log.info("Received comment created event: {}", message.getEventId());
+        try {
+            if ("COMMENT_CREATED".equals(message.getEventType())) {
+                log.info("Processing comment created event for tweetId: {}", message.getPayload().getTweetId());
+                timelineService.handleCommentCreated(message.getEventId(), message.getPayload());
+            }
+        } catch (Exception e) {
+            log.error("Error processing comment created event: {}", e.getMessage(), e);
+        }
+        log.info("Comment created event processed successfully: {}", message.getEventId());
+    }
+
+    @RabbitListener(queues = "#{profileUpdatedQueue.name}")
+    public void handleProfileUpdatedEvent(@Payload ApiEventMessage<ProfileUpdatedEventPayload> message) {
+        log.info("Received profile updated event: {}", message.getEventId());
+        try {
+            if ("PROFILE_UPDATED".equals(message.getEventType())) {
+                log.info("Processing profile updated event for userId: {}", message.getPayload().getUserId());
+                timelineService.handleProfileUpdated(message.getPayload());
+            }
+        } catch (Exception e) {
+            log.error("Error processing profile updated event: {}", e.getMessage(), e);
+        }
+        log.info("Profile updated event processed successfully: {}", message.getEventId());
+    }
 }
@@ -6,6 +6,8 @@ import com.david.common.dto.follow.FollowResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
@@ -21,4 +23,18 @@ public interface FollowClient {
             @RequestParam(name = "sortBy") String sortBy
     );
 
+    @GetMapping("/api/v1/follows/{userId}/following")
+    FeignApiResponse<PageResponse<List<FollowResponse>>> getFollowing(
+            @PathVariable("userId") String userId,
+            @RequestParam(name = "page") int page,
+            @RequestParam(name = "size") int size,
+            @RequestParam(name = "sortBy") String sortBy
+    );
+
+    @PostMapping("/api/v1/follows/{userId}/following/among")
+    FeignApiResponse<List<String>> getFollowedAmong(
+            @PathVariable("userId") String userId,
+            @RequestBody List<String> followedIds
+    );
+
 }
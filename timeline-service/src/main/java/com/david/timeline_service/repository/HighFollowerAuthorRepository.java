@@ -0,0 +1,9 @@
+package com.david.timeline_service.repository;
+
+import com.david.timeline_service.entity.HighFollowerAuthor;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface HighFollowerAuthorRepository extends MongoRepository<HighFollowerAuthor, String> {
+}
@@ -0,0 +1,21 @@
+package com.david.timeline_service.repository;
+
+import com.david.common.dto.FeignApiResponse;
+import com.david.common.dto.profile.AuthorSummaryResponse;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+@FeignClient(name = "profile-service", url = "${app.services.profile-service.url}")
+public interface ProfileClient {
+
+    @GetMapping("/api/v1/profiles/batch")
+    FeignApiResponse<List<AuthorSummaryResponse>> getAuthorsByIds(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+            @RequestParam("ids") List<String> ids
+    );
+}
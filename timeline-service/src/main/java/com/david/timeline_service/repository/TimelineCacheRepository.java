@@ -0,0 +1,249 @@
+package com.david.timeline_service.repository;
+
+import com.david.timeline_service.entity.TimelineEntry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineCacheRepository {
+
+    private static final String KEY_PREFIX = "timeline:";
+
+    private static final String BUILDING_KEY_PREFIX = "timeline:building:";
+    private static final String PENDING_KEY_PREFIX = "timeline:pending:";
+
+    // Sole member of a cached timeline that has no entries, so reads of it stay hits instead of rebuilding from Mongo
+    private static final String EMPTY_MARKER = "";
+
+    // Only touch timelines that are already materialized, otherwise a partial set would look like a warm cache.
+    // While a rebuild is in progress the entries go to its pending set instead, to be merged into the snapshot.
+    // Called once per user with all of that user's entries
+    private static final RedisScript<Long> ADD_IF_PRESENT_SCRIPT = new DefaultRedisScript<>("""
+            local target
+            local ttl
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                target, ttl = KEYS[1], ARGV[2]
+            elseif redis.call('EXISTS', KEYS[2]) == 1 then
+                target, ttl = KEYS[3], ARGV[3]
+            else
+                return 0
+            end
+            for i = 4, #ARGV, 2 do
+                redis.call('ZADD', target, ARGV[i], ARGV[i + 1])
+            end
+            redis.call('ZREM', target, '%s')
+            redis.call('ZREMRANGEBYRANK', target, 0, -(tonumber(ARGV[1]) + 1))
+            redis.call('EXPIRE', target, ttl)
+            return 1
+            """.formatted(EMPTY_MARKER), Long.class);
+
+    // Writes the snapshot only if this rebuild still owns the marker, i.e. no eviction or newer rebuild came after
+    // its Mongo read. The timeline is never deleted first: the snapshot and whatever fan-out added meanwhile are
+    // merged, with MAX so a tweet present in both keeps its tweetAt
+    private static final RedisScript<Long> REBUILD_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[2]) ~= ARGV[1] then
+                return 0
+            end
+            for i = 4, #ARGV, 2 do
+                redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            if redis.call('EXISTS', KEYS[3]) == 1 then
+                redis.call('ZUNIONSTORE', KEYS[1], 2, KEYS[1], KEYS[3], 'AGGREGATE', 'MAX')
+            end
+            redis.call('DEL', KEYS[2], KEYS[3])
+            if redis.call('ZCARD', KEYS[1]) == 0 then
+                redis.call('ZADD', KEYS[1], '-inf', '%1$s')
+            elseif redis.call('ZCARD', KEYS[1]) > 1 then
+                redis.call('ZREM', KEYS[1], '%1$s')
+            end
+            redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -(tonumber(ARGV[2]) + 1))
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """.formatted(EMPTY_MARKER), Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // Never more than retention keeps in Mongo, or pages past the retained entries would be served from the cache
+    // but be gone on a cold read
+    @Value("${app.timeline.cache.max-entries:${app.timeline.retention.max-entries:500}}")
+    private int maxEntries;
+    @Value("${app.timeline.retention.max-entries:500}")
+    private int retainedEntries;
+    @Value("${app.timeline.cache.ttl:7d}")
+    private Duration ttl;
+    @Value("${app.timeline.cache.rebuild-timeout:1m}")
+    private Duration rebuildTimeout;
+
+    @PostConstruct
+    void capMaxEntries() {
+        if (maxEntries > retainedEntries) {
+            log.warn("TimelineCacheRepository::capMaxEntries - cache.max-entries {} exceeds retention.max-entries {}, using {}",
+                    maxEntries, retainedEntries, retainedEntries);
+            maxEntries = retainedEntries;
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public Optional<List<TimelineEntry>> findRange(String userId, long offset, long limit) {
+        String key = key(userId);
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                    .reverseRangeWithScores(key, offset, offset + limit - 1);
+            if (tuples == null || tuples.isEmpty()) {
+                return Boolean.TRUE.equals(stringRedisTemplate.hasKey(key)) ? Optional.of(List.of()) : Optional.empty();
+            }
+            return Optional.of(tuples.stream()
+                    .filter(tuple -> !EMPTY_MARKER.equals(tuple.getValue()))
+                    .map(tuple -> TimelineEntry.builder()
+                            .userId(userId)
+                            .tweetId(tuple.getValue())
+                            .tweetAt(tuple.getScore() == null ? 0 : tuple.getScore().longValue())
+                            .build())
+                    .toList());
+        } catch (DataAccessException e) {
+            log.warn("TimelineCacheRepository::findRange - Cache unavailable for userId: {}. Error: {}", userId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public Optional<Long> countNewer(String userId, long afterTweetAt) {
+        String key = key(userId);
+        try {
+            Long count = stringRedisTemplate.opsForZSet().count(key, afterTweetAt + 1, Double.POSITIVE_INFINITY);
+            if (count != null && count > 0) {
+                return Optional.of(count);
+            }
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(key)) ? Optional.of(0L) : Optional.empty();
+        } catch (DataAccessException e) {
+            log.warn("TimelineCacheRepository::countNewer - Cache unavailable for userId: {}. Error: {}", userId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void addIfPresent(Collection<TimelineEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<String, List<TimelineEntry>> entriesByUser = entries.stream()
+                .collect(Collectors.groupingBy(TimelineEntry::getUserId));
+        try {
+            try {
+                addIfPresentPipelined(entriesByUser);
+            } catch (DataAccessException e) {
+                if (!isNoScript(e)) {
+                    throw e;
+                }
+                // Redis lost its script cache (restart or SCRIPT FLUSH), so none of the calls ran; load it and replay
+                stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.scriptingCommands()
+                        .scriptLoad(ADD_IF_PRESENT_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+                addIfPresentPipelined(entriesByUser);
+            }
+        } catch (DataAccessException e) {
+            log.warn("TimelineCacheRepository::addIfPresent - Failed to update {} cached entries. Error: {}",
+                    entries.size(), e.getMessage());
+        }
+    }
+
+    // EVALSHA, so the pipeline carries the script's hash rather than its source
+    private void addIfPresentPipelined(Map<String, List<TimelineEntry>> entriesByUser) {
+        byte[] sha = ADD_IF_PRESENT_SCRIPT.getSha1().getBytes(StandardCharsets.UTF_8);
+        byte[] cap = String.valueOf(maxEntries).getBytes(StandardCharsets.UTF_8);
+        byte[] ttlSeconds = String.valueOf(ttl.toSeconds()).getBytes(StandardCharsets.UTF_8);
+        byte[] pendingTtlSeconds = String.valueOf(rebuildTimeout.toSeconds()).getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            entriesByUser.forEach((userId, userEntries) -> {
+                List<byte[]> keysAndArgs = new ArrayList<>();
+                keysAndArgs.add(key(userId).getBytes(StandardCharsets.UTF_8));
+                keysAndArgs.add((BUILDING_KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8));
+                keysAndArgs.add((PENDING_KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8));
+                keysAndArgs.add(cap);
+                keysAndArgs.add(ttlSeconds);
+                keysAndArgs.add(pendingTtlSeconds);
+                for (TimelineEntry entry : userEntries) {
+                    keysAndArgs.add(String.valueOf(entry.getTweetAt()).getBytes(StandardCharsets.UTF_8));
+                    keysAndArgs.add(entry.getTweetId().getBytes(StandardCharsets.UTF_8));
+                }
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 3, keysAndArgs.toArray(byte[][]::new));
+            });
+            return null;
+        });
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Must be called before reading the snapshot from Mongo; fan-out from then on is kept for the rebuild.
+    // Returns the token to pass to rebuild, or null when Redis is unavailable
+    public String beginRebuild(String userId) {
+        String token = UUID.randomUUID().toString();
+        try {
+            stringRedisTemplate.opsForValue().set(BUILDING_KEY_PREFIX + userId, token, rebuildTimeout);
+            return token;
+        } catch (DataAccessException e) {
+            log.warn("TimelineCacheRepository::beginRebuild - Cache unavailable for userId: {}. Error: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    public void rebuild(String userId, String token, List<TimelineEntry> newestEntries) {
+        if (token == null) {
+            return;
+        }
+        List<String> args = new ArrayList<>();
+        args.add(token);
+        args.add(String.valueOf(maxEntries));
+        args.add(String.valueOf(ttl.toSeconds()));
+        newestEntries.stream()
+                .limit(maxEntries)
+                .forEach(entry -> {
+                    args.add(String.valueOf(entry.getTweetAt()));
+                    args.add(entry.getTweetId());
+                });
+        try {
+            stringRedisTemplate.execute(REBUILD_SCRIPT,
+                    List.of(key(userId), BUILDING_KEY_PREFIX + userId, PENDING_KEY_PREFIX + userId),
+                    args.toArray());
+        } catch (DataAccessException e) {
+            log.warn("TimelineCacheRepository::rebuild - Failed to rebuild cache for userId: {}. Error: {}", userId, e.getMessage());
+        }
+    }
+
+    // Also cancels a rebuild in progress, whose snapshot may predate the change that caused the eviction
+    public void evict(String userId) {
+        try {
+            stringRedisTemplate.delete(List.of(key(userId), BUILDING_KEY_PREFIX + userId, PENDING_KEY_PREFIX + userId));
+        } catch (DataAccessException e) {
+            log.warn("TimelineCacheRepository::evict - Failed to evict cache for userId: {}. Error: {}", userId, e.getMessage());
+        }
+    }
+
+    private String key(String userId) {
+        return KEY_PREFIX + userId;
+    }
+}
@@ -4,12 +4,27 @@ import com.david.timeline_service.entity.TimelineEntry;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface TimelineRepository extends MongoRepository<TimelineEntry, String> {
+public interface TimelineRepository extends MongoRepository<TimelineEntry, String>, TimelineRepositoryCustom {
 
     Page<TimelineEntry> findByUserId(String userId, Pageable pageable);
 
+    List<TimelineEntry> findAllByUserId(String userId, Pageable pageable);
+
+    @Query("{ 'userId': ?0, $or: [ { 'tweetAt': { $lt: ?1 } }, { 'tweetAt': ?1, 'tweetId': { $lt: ?2 } } ] }")
+    List<TimelineEntry> findAllByUserIdBefore(String userId, long tweetAt, String tweetId, Pageable pageable);
+
+    @Query(value = "{ 'userId': ?0, $or: [ { 'tweetAt': { $lt: ?1 } }, { 'tweetAt': ?1, 'tweetId': { $lte: ?2 } } ] }",
+            fields = "{ '_id': 1 }")
+    List<TimelineEntry> findIdsByUserIdAtOrBefore(String userId, long tweetAt, String tweetId, Pageable pageable);
+
     void deleteByUserIdAndTweetOwnerId(String userId, String tweetId);
+
+    long deleteByUserIdAndTweetOwnerIdNotIn(String userId, Collection<String> tweetOwnerIds);
 }
@@ -0,0 +1,15 @@
+package com.david.timeline_service.repository;
+
+import com.david.timeline_service.entity.TimelineEntry;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TimelineRepositoryCustom {
+
+    int upsertAll(Collection<TimelineEntry> entries);
+
+    List<String> findUserIdsAfter(String afterUserId, int limit);
+
+    long countNewer(String userId, long afterTweetAt, int limit);
+}
@@ -0,0 +1,75 @@
+package com.david.timeline_service.repository;
+
+import com.david.timeline_service.entity.TimelineEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class TimelineRepositoryCustomImpl implements TimelineRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.timeline.retention.max-age:30d}")
+    private Duration maxAge;
+
+    @Override
+    public int upsertAll(Collection<TimelineEntry> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TimelineEntry.class);
+        for (TimelineEntry entry : entries) {
+            String id = TimelineEntry.idOf(entry.getUserId(), entry.getTweetId());
+            entry.setId(id);
+            bulkOperations.upsert(Query.query(Criteria.where("_id").is(id)), new Update()
+                    .setOnInsert("userId", entry.getUserId())
+                    .setOnInsert("tweetId", entry.getTweetId())
+                    .setOnInsert("tweetOwnerId", entry.getTweetOwnerId())
+                    .setOnInsert("tweetAt", entry.getTweetAt())
+                    .setOnInsert("expireAt", Instant.ofEpochMilli(entry.getTweetAt()).plus(maxAge)));
+        }
+        // Replays hit existing ids and only count as matches, so this is the number of new entries
+        return bulkOperations.execute().getUpserts().size();
+    }
+
+    // Distinct owners in userId order, resumable from the last id seen. Each owner is one seek on the
+    // userId_tweetAt_tweetId index for the first userId above the previous one, covered by projecting only userId,
+    // so a page costs limit seeks however many entries the owners have or how far into the job it is
+    @Override
+    public List<String> findUserIdsAfter(String afterUserId, int limit) {
+        List<String> userIds = new ArrayList<>(limit);
+        String lastUserId = afterUserId;
+        while (userIds.size() < limit) {
+            Query query = new Query(lastUserId == null ? new Criteria() : Criteria.where("userId").gt(lastUserId))
+                    .with(Sort.by(Sort.Direction.ASC, "userId"))
+                    .limit(1);
+            query.fields().include("userId").exclude("_id");
+            TimelineEntry next = mongoTemplate.findOne(query, TimelineEntry.class);
+            if (next == null) {
+                break;
+            }
+            lastUserId = next.getUserId();
+            userIds.add(lastUserId);
+        }
+        return userIds;
+    }
+
+    // Only touches the userId_tweetAt_tweetId index, and stops scanning once limit entries are counted
+    @Override
+    public long countNewer(String userId, long afterTweetAt, int limit) {
+        Query query = Query.query(Criteria.where("userId").is(userId).and("tweetAt").gt(afterTweetAt)).limit(limit);
+        return mongoTemplate.count(query, TimelineEntry.class);
+    }
+}
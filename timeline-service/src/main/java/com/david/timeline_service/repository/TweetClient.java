@@ -1,10 +1,15 @@
 package com.david.timeline_service.repository;
 
 import com.david.common.dto.FeignApiResponse;
+import com.david.common.dto.tweet.TweetBatchResponse;
 import com.david.common.dto.tweet.TweetResponse;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
@@ -21,7 +26,19 @@ public interface TweetClient {
     );
 
     @GetMapping("/api/v1/tweets/batch")
-    FeignApiResponse<List<TweetResponse>> getTweetsByIds(
+    FeignApiResponse<TweetBatchResponse> getTweetsByIds(
             @RequestParam("ids") List<String> ids
     );
+
+    @GetMapping("/api/v1/users/{userId}/liked-tweets")
+    FeignApiResponse<List<String>> getLikedTweetIds(
+            @PathVariable("userId") String userId,
+            @RequestParam("ids") List<String> ids
+    );
+
+    @PostMapping("/api/v1/tweets/impressions")
+    FeignApiResponse<Void> recordImpressions(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+            @RequestBody List<String> tweetIds
+    );
 }
@@ -0,0 +1,78 @@
+package com.david.timeline_service.service;
+
+import com.david.common.dto.profile.AuthorSummaryResponse;
+import com.david.common.dto.profile.ProfileUpdatedEventPayload;
+import com.david.timeline_service.repository.ProfileClient;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+
+@Service
+@Slf4j
+public class AuthorHydrationService {
+
+    // profile-service rejects batch lookups larger than this
+    private static final int PROFILE_BATCH_SIZE = 100;
+
+    private final ProfileClient profileClient;
+    private final Cache<String, AuthorSummaryResponse> authorCache;
+
+    public AuthorHydrationService(
+            ProfileClient profileClient,
+            MeterRegistry meterRegistry,
+            @Value("${app.timeline.authors.max-size:100000}") long maxSize,
+            @Value("${app.timeline.authors.ttl:1h}") Duration ttl) {
+        this.profileClient = profileClient;
+        // PROFILE_UPDATED events keep entries current; the TTL only covers events missed while disconnected
+        this.authorCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, authorCache, "timeline.authors");
+    }
+
+    public Map<String, AuthorSummaryResponse> getAuthorsByIds(String authorization, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return authorCache.getAll(userIds, missingIds -> loadAuthors(authorization, missingIds));
+        } catch (RuntimeException e) {
+            // Author details are decoration; the page is still served without them
+            log.warn("AuthorHydrationService::getAuthorsByIds - Failed to load {} authors. Error: {}",
+                    userIds.size(), e.getMessage());
+            return authorCache.getAllPresent(userIds);
+        }
+    }
+
+    public void handleProfileUpdated(ProfileUpdatedEventPayload payload) {
+        authorCache.put(payload.getUserId(), AuthorSummaryResponse.builder()
+                .userId(payload.getUserId())
+                .username(payload.getUsername())
+                .displayName(payload.getDisplayName())
+                .profileImageUrl(payload.getProfileImageUrl())
+                .build());
+    }
+
+    private Map<String, AuthorSummaryResponse> loadAuthors(String authorization, Set<? extends String> missingIds) {
+        List<String> ids = new ArrayList<>(missingIds);
+        log.info("AuthorHydrationService::loadAuthors - Fetching {} profiles from profile-service", ids.size());
+        Map<String, AuthorSummaryResponse> authors = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += PROFILE_BATCH_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + PROFILE_BATCH_SIZE, ids.size()));
+            List<AuthorSummaryResponse> profiles = profileClient.getAuthorsByIds(authorization, chunk).getResult();
+            if (profiles != null) {
+                profiles.forEach(profile -> authors.putIfAbsent(profile.getUserId(), profile));
+            }
+        }
+        return authors;
+    }
+}
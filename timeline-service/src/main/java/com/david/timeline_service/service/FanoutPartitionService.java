@@ -0,0 +1,107 @@
+package com.david.timeline_service.service;
+
+import com.david.common.dto.tweet.TweetCreatedEventPayload;
+import com.david.timeline_service.dto.FanoutTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Recipients are mapped to partitions on a hash ring, so changing the partition count only moves
+// about 1/N of the users; each partition is a queue with a single active consumer, which keeps
+// every user's writes in order while partitions run in parallel
+@Service
+@Slf4j
+public class FanoutPartitionService {
+
+    private static final int VIRTUAL_NODES_PER_PARTITION = 64;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final boolean enabled;
+    private final int partitionCount;
+    private final String exchange;
+    private final String queuePrefix;
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    public FanoutPartitionService(
+            RabbitTemplate rabbitTemplate,
+            @Value("${app.timeline.fanout.partitions.enabled:false}") boolean enabled,
+            @Value("${app.timeline.fanout.partitions.count:8}") int partitionCount,
+            @Value("${app.rabbitmq.exchange.timeline-fanout:timeline.fanout.exchange}") String exchange,
+            @Value("${app.rabbitmq.queue.timeline-fanout-prefix:timeline.fanout.partition.}") String queuePrefix) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.enabled = enabled;
+        this.partitionCount = partitionCount;
+        this.exchange = exchange;
+        this.queuePrefix = queuePrefix;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            for (int node = 0; node < VIRTUAL_NODES_PER_PARTITION; node++) {
+                ring.put(hash("partition-" + partition + "#" + node), partition);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public String getExchange() {
+        return exchange;
+    }
+
+    public String queueName(int partition) {
+        return queuePrefix + partition;
+    }
+
+    // Shared by every partition, so a dead-lettered task is found in one place whichever partition gave up on it
+    public String deadLetterQueueName() {
+        return queuePrefix + "dlq";
+    }
+
+    public String routingKey(int partition) {
+        return String.valueOf(partition);
+    }
+
+    public int partitionOf(String userId) {
+        Map.Entry<Long, Integer> node = ring.ceilingEntry(hash(userId));
+        return node != null ? node.getValue() : ring.firstEntry().getValue();
+    }
+
+    // Splits one page of recipients into at most one task per partition
+    public int dispatch(String authorId, List<TweetCreatedEventPayload> tweets, List<String> recipientIds) {
+        Map<Integer, List<String>> recipientsByPartition = new HashMap<>();
+        for (String recipientId : recipientIds) {
+            recipientsByPartition.computeIfAbsent(partitionOf(recipientId), partition -> new ArrayList<>()).add(recipientId);
+        }
+        List<FanoutTask.TweetRef> tweetRefs = tweets.stream()
+                .map(tweet -> FanoutTask.TweetRef.builder()
+                        .tweetId(tweet.getId())
+                        .tweetAt(tweet.getCreatedAt())
+                        .build())
+                .toList();
+        recipientsByPartition.forEach((partition, recipients) -> rabbitTemplate.convertAndSend(exchange, routingKey(partition),
+                FanoutTask.builder()
+                        .partition(partition)
+                        .authorId(authorId)
+                        .recipientIds(recipients)
+                        .tweets(tweetRefs)
+                        .build()));
+        log.info("FanoutPartitionService::dispatch - authorId: {}, recipients: {}, tasks: {}",
+                authorId, recipientIds.size(), recipientsByPartition.size());
+        return recipientsByPartition.size();
+    }
+
+    private long hash(String value) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(value.getBytes(StandardCharsets.UTF_8));
+        return crc32.getValue();
+    }
+}
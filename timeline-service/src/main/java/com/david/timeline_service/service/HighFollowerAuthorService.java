@@ -0,0 +1,101 @@
+package com.david.timeline_service.service;
+
+import com.david.timeline_service.entity.HighFollowerAuthor;
+import com.david.timeline_service.repository.FollowClient;
+import com.david.timeline_service.repository.HighFollowerAuthorRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// High-follower authors are few, so the whole set is kept in memory and refreshed on a schedule. A reader's
+// pulled authors come from intersecting that set with their following list in a single follow-service call,
+// rather than walking every page of who they follow
+@Service
+@Slf4j
+public class HighFollowerAuthorService {
+
+    private final HighFollowerAuthorRepository highFollowerAuthorRepository;
+    private final FollowClient followClient;
+    private final Cache<String, List<String>> followedByReader;
+    private volatile Set<String> authorIds = ConcurrentHashMap.newKeySet();
+
+    public HighFollowerAuthorService(
+            HighFollowerAuthorRepository highFollowerAuthorRepository,
+            FollowClient followClient,
+            @Value("${app.timeline.hybrid.reader-cache.max-size:100000}") long readerCacheMaxSize,
+            @Value("${app.timeline.hybrid.reader-cache.ttl:1m}") Duration readerCacheTtl) {
+        this.highFollowerAuthorRepository = highFollowerAuthorRepository;
+        this.followClient = followClient;
+        // The TTL bounds how long a new follow of a high-follower author takes to show up in the reader's timeline
+        this.followedByReader = Caffeine.newBuilder()
+                .maximumSize(readerCacheMaxSize)
+                .expireAfterWrite(readerCacheTtl)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${app.timeline.hybrid.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            Set<String> refreshed = ConcurrentHashMap.newKeySet();
+            highFollowerAuthorRepository.findAll().forEach(author -> refreshed.add(author.getAuthorId()));
+            authorIds = refreshed;
+        } catch (DataAccessException e) {
+            log.warn("HighFollowerAuthorService::refresh - Failed to load high-follower authors. Error: {}", e.getMessage());
+        }
+    }
+
+    public boolean isHighFollowerAuthor(String authorId) {
+        return authorIds.contains(authorId);
+    }
+
+    // Writes only when the author crosses the threshold in either direction, not on every fanned-out tweet
+    public boolean classify(String authorId, long followerCount, long threshold) {
+        boolean highFollower = followerCount > threshold;
+        if (highFollower == authorIds.contains(authorId)) {
+            return highFollower;
+        }
+        if (highFollower) {
+            highFollowerAuthorRepository.save(HighFollowerAuthor.builder()
+                    .authorId(authorId)
+                    .followerCount(followerCount)
+                    .build());
+            authorIds.add(authorId);
+        } else {
+            highFollowerAuthorRepository.deleteById(authorId);
+            authorIds.remove(authorId);
+        }
+        log.info("HighFollowerAuthorService::classify - userId: {} is {} a high-follower author, followers: {}",
+                authorId, highFollower ? "now" : "no longer", followerCount);
+        return highFollower;
+    }
+
+    // A failed lookup serves this read without pulled authors and is not cached, so the next read retries
+    public List<String> findFollowedBy(String userId) {
+        Set<String> candidates = authorIds;
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        List<String> cached = followedByReader.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            List<String> followed = followClient.getFollowedAmong(userId, new ArrayList<>(candidates)).getResult();
+            List<String> result = followed == null ? List.of() : List.copyOf(followed);
+            followedByReader.put(userId, result);
+            return result;
+        } catch (Exception e) {
+            log.warn("HighFollowerAuthorService::findFollowedBy - Failed to look up followed authors for userId: {}. Error: {}",
+                    userId, e.getMessage());
+            return List.of();
+        }
+    }
+}
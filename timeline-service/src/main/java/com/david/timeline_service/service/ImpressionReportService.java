@@ -0,0 +1,62 @@
+package com.david.timeline_service.service;
+
+import com.david.timeline_service.repository.TweetClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Reports which tweets a viewer was shown, off the request thread. tweet-service takes the viewer from the token,
+// so the caller's token is captured on the request thread and sent along. Once the queue is full further reports
+// are thrown away and counted in timeline.impressions.dropped, since view counts are estimates anyway
+@Service
+@Slf4j
+public class ImpressionReportService {
+
+    private final TweetClient tweetClient;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor reportExecutor;
+
+    public ImpressionReportService(
+            TweetClient tweetClient,
+            MeterRegistry meterRegistry,
+            @Value("${app.timeline.impressions.queue-capacity:1000}") int queueCapacity) {
+        this.tweetClient = tweetClient;
+        this.meterRegistry = meterRegistry;
+        this.reportExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+    }
+
+    public void report(Jwt viewer, List<String> tweetIds) {
+        if (tweetIds.isEmpty()) {
+            return;
+        }
+        try {
+            reportExecutor.execute(() -> send(viewer, tweetIds));
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("timeline.impressions.dropped").increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reportExecutor.shutdown();
+    }
+
+    private void send(Jwt viewer, List<String> tweetIds) {
+        try {
+            tweetClient.recordImpressions("Bearer " + viewer.getTokenValue(), tweetIds);
+        } catch (Exception e) {
+            log.warn("ImpressionReportService::send - Failed to report {} impressions for userId: {}. Error: {}",
+                    tweetIds.size(), viewer.getSubject(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.david.timeline_service.service;
+
+import com.david.timeline_service.dto.response.TimelineMigrationResponse;
+import com.david.timeline_service.entity.TimelineEntry;
+import com.david.timeline_service.repository.TimelineRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineMigrationService {
+
+    public static final String LEGACY_COLLECTION = "timeline_entries";
+
+    private final MongoTemplate mongoTemplate;
+    private final TimelineRepository timelineRepository;
+
+    // Off until MongoIndexConfig has the userId index on the legacy collection, so the per-user fallback never scans
+    // it; cleared again once the legacy collection is drained, after which reads skip the fallback entirely
+    private volatile boolean legacyPending;
+
+    // Copies legacy entries into the compact collection and drops each batch once it is written,
+    // so an interrupted run simply resumes with whatever is left
+    @PreAuthorize("hasRole('ADMIN')")
+    public TimelineMigrationResponse migrateLegacyEntries(int batchSize) {
+        log.info("TimelineMigrationService::migrateLegacyEntries - Execution started with batchSize: {}", batchSize);
+        long startedAt = System.currentTimeMillis();
+        long migrated = 0;
+        long batches = 0;
+        while (true) {
+            int migratedInBatch = migrateBatch(new Query(), batchSize);
+            if (migratedInBatch == 0) {
+                legacyPending = false;
+                break;
+            }
+            migrated += migratedInBatch;
+            batches++;
+            log.info("TimelineMigrationService::migrateLegacyEntries - Batch {} done, {} entries migrated so far",
+                    batches, migrated);
+        }
+        long durationMs = System.currentTimeMillis() - startedAt;
+        log.info("TimelineMigrationService::migrateLegacyEntries - Execution ended, migrated {} entries in {} ms",
+                migrated, durationMs);
+        return TimelineMigrationResponse.builder()
+                .migratedEntries(migrated)
+                .batches(batches)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    // Timelines are written to and read from the compact collection only, so until the batch migration has run a
+    // user's legacy entries are moved over the first time they read their timeline. Returns true if anything moved
+    public boolean migrateUser(String userId, int batchSize) {
+        if (!legacyPending) {
+            return false;
+        }
+        try {
+            long migrated = 0;
+            int migratedInBatch;
+            do {
+                migratedInBatch = migrateBatch(Query.query(Criteria.where("userId").is(userId)), batchSize);
+                migrated += migratedInBatch;
+            } while (migratedInBatch == batchSize);
+            if (migrated > 0) {
+                log.info("TimelineMigrationService::migrateUser - Migrated {} legacy entries for userId: {}",
+                        migrated, userId);
+            }
+            return migrated > 0;
+        } catch (DataAccessException e) {
+            log.warn("TimelineMigrationService::migrateUser - Legacy fallback failed for userId: {}: {}",
+                    userId, e.getMessage());
+            return false;
+        }
+    }
+
+    public void enableLegacyFallback() {
+        try {
+            legacyPending = mongoTemplate.estimatedCount(LEGACY_COLLECTION) > 0;
+            log.info("TimelineMigrationService::enableLegacyFallback - Legacy fallback {}",
+                    legacyPending ? "enabled" : "not needed");
+        } catch (DataAccessException e) {
+            log.warn("TimelineMigrationService::enableLegacyFallback - Failed to check legacy collection: {}",
+                    e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.timeline.migration.check-interval-ms:60000}")
+    public void refreshLegacyPending() {
+        if (!legacyPending) {
+            return;
+        }
+        try {
+            legacyPending = mongoTemplate.estimatedCount(LEGACY_COLLECTION) > 0;
+            if (!legacyPending) {
+                log.info("TimelineMigrationService::refreshLegacyPending - Legacy timeline collection is drained");
+            }
+        } catch (DataAccessException e) {
+            log.warn("TimelineMigrationService::refreshLegacyPending - Failed to check legacy collection: {}",
+                    e.getMessage());
+        }
+    }
+
+    private int migrateBatch(Query filter, int batchSize) {
+        Query query = filter.with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        List<Document> legacyEntries = mongoTemplate.find(query, Document.class, LEGACY_COLLECTION);
+        if (legacyEntries.isEmpty()) {
+            return 0;
+        }
+        List<TimelineEntry> entries = legacyEntries.stream()
+                .map(document -> TimelineEntry.builder()
+                        .userId(document.getString("userId"))
+                        .tweetId(document.getString("tweetId"))
+                        .tweetOwnerId(document.getString("tweetOwnerId"))
+                        .tweetAt(document.get("tweetAt", Number.class).longValue())
+                        .build())
+                .toList();
+        timelineRepository.upsertAll(entries);
+        List<Object> legacyIds = legacyEntries.stream()
+                .map(document -> document.get("_id"))
+                .toList();
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(legacyIds)), LEGACY_COLLECTION);
+        return entries.size();
+    }
+}
@@ -0,0 +1,141 @@
+package com.david.timeline_service.service;
+
+import com.david.timeline_service.entity.TimelineEntry;
+import com.david.timeline_service.entity.TweetEngagement;
+import com.david.timeline_service.repository.TweetEngagementRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// rank = log2(1 + likeWeight * likes + commentWeight * comments) + tweetAt / halfLife. The stored engagementScore is
+// the log2 term, so one half-life of recency is worth one point of it, i.e. doubling 1 + weighted engagement.
+// Because the decay term only depends on tweetAt, scores never need to be recomputed as time passes
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineRankingService {
+
+    // Event ids a tweet remembers; has to outlast a redelivery of everything a consumer had unacknowledged
+    private static final int RECENT_EVENTS_KEPT = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final TweetEngagementRepository tweetEngagementRepository;
+
+    @Value("${app.timeline.ranking.like-weight:1.0}")
+    private double likeWeight;
+    @Value("${app.timeline.ranking.comment-weight:2.0}")
+    private double commentWeight;
+    @Value("${app.timeline.ranking.half-life:6h}")
+    private Duration halfLife;
+
+    public void handleTweetLiked(String eventId, String tweetId) {
+        incrementEngagement(eventId, tweetId, "likes");
+    }
+
+    public void handleCommentCreated(String eventId, String tweetId) {
+        incrementEngagement(eventId, tweetId, "comments");
+    }
+
+    public void handleTweetDeleted(String tweetId) {
+        tweetEngagementRepository.deleteById(tweetId);
+    }
+
+    // Returns entries [skip, skip + limit) by rank, keeping only skip + limit candidates on the heap at any time
+    public List<TimelineEntry> selectTop(List<TimelineEntry> entries, int skip, int limit) {
+        int keep = skip + limit;
+        if (entries.isEmpty() || keep <= 0 || skip >= entries.size()) {
+            return List.of();
+        }
+        List<String> tweetIds = entries.stream()
+                .map(TimelineEntry::getTweetId)
+                .toList();
+        Query query = Query.query(Criteria.where("_id").in(tweetIds));
+        query.fields().include("engagementScore");
+        Map<String, Double> engagementScores = mongoTemplate.find(query, TweetEngagement.class).stream()
+                .collect(Collectors.toMap(TweetEngagement::getTweetId, TweetEngagement::getEngagementScore));
+        double halfLifeMillis = halfLife.toMillis();
+
+        PriorityQueue<RankedEntry> heap = new PriorityQueue<>(keep, Comparator.comparingDouble(RankedEntry::rank));
+        for (TimelineEntry entry : entries) {
+            double rank = engagementScores.getOrDefault(entry.getTweetId(), 0.0) + entry.getTweetAt() / halfLifeMillis;
+            if (heap.size() < keep) {
+                heap.add(new RankedEntry(entry, rank));
+            } else if (rank > heap.peek().rank()) {
+                heap.poll();
+                heap.add(new RankedEntry(entry, rank));
+            }
+        }
+        List<RankedEntry> ranked = new ArrayList<>(heap);
+        ranked.sort(Comparator.comparingDouble(RankedEntry::rank).reversed());
+        return ranked.stream()
+                .skip(skip)
+                .map(RankedEntry::entry)
+                .toList();
+    }
+
+    // One pipeline update counts the event and recomputes the score from the counts it produced, so concurrent
+    // events cannot leave a score behind their counts. A tweet that already lists the event id does not match;
+    // the upsert then collides with it on _id, which is how a redelivered event is recognized and dropped
+    private void incrementEngagement(String eventId, String tweetId, String counter) {
+        Criteria criteria = Criteria.where("_id").is(tweetId);
+        if (eventId != null) {
+            criteria.and("recentEventIds").ne(eventId);
+        }
+        AggregationUpdate update = engagementUpdate(eventId, counter);
+        try {
+            upsertOnce(criteria, update);
+        } catch (DuplicateKeyException e) {
+            // Also what two first events for the same tweet racing to insert look like; the retry settles which
+            try {
+                upsertOnce(criteria, update);
+            } catch (DuplicateKeyException duplicate) {
+                log.info("TimelineRankingService::incrementEngagement - Skipping already counted event {} for tweetId: {}",
+                        eventId, tweetId);
+                return;
+            }
+        }
+        log.info("TimelineRankingService::incrementEngagement - tweetId: {}, counted {} from event {}", tweetId, counter, eventId);
+    }
+
+    private void upsertOnce(Criteria criteria, AggregationUpdate update) {
+        mongoTemplate.upsert(Query.query(criteria), update, TweetEngagement.class);
+    }
+
+    // A $set stage sees the document as it was before the stage, so the score is computed in a second one
+    private AggregationUpdate engagementUpdate(String eventId, String counter) {
+        Document counts = new Document(counter, new Document("$add", List.of(ifNull("$" + counter, 0), 1)));
+        if (eventId != null) {
+            counts.append("recentEventIds", new Document("$slice", List.of(
+                    new Document("$concatArrays", List.of(ifNull("$recentEventIds", List.of()), List.of(eventId))),
+                    -RECENT_EVENTS_KEPT)));
+        }
+        Document weighted = new Document("$add", List.of(1,
+                new Document("$multiply", List.of(likeWeight, ifNull("$likes", 0))),
+                new Document("$multiply", List.of(commentWeight, ifNull("$comments", 0)))));
+        Document score = new Document("engagementScore", new Document("$log", List.of(weighted, 2)));
+        return AggregationUpdate.from(List.of(setStage(counts), setStage(score)));
+    }
+
+    private static AggregationOperation setStage(Document fields) {
+        return context -> new Document("$set", fields);
+    }
+
+    private static Document ifNull(String field, Object fallback) {
+        return new Document("$ifNull", List.of(field, fallback));
+    }
+
+    private record RankedEntry(TimelineEntry entry, double rank) {
+    }
+}
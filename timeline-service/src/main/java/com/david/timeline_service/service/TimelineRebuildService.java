@@ -0,0 +1,241 @@
+package com.david.timeline_service.service;
+
+import com.david.common.dto.FeignApiResponse;
+import com.david.common.dto.PageResponse;
+import com.david.common.dto.follow.FollowResponse;
+import com.david.common.dto.tweet.TweetResponse;
+import com.david.timeline_service.dto.response.TimelineRebuildResponse;
+import com.david.timeline_service.entity.TimelineEntry;
+import com.david.timeline_service.exception.TimelineServiceException;
+import com.david.timeline_service.repository.FollowClient;
+import com.david.timeline_service.repository.TimelineCacheRepository;
+import com.david.timeline_service.repository.TimelineRepository;
+import com.david.timeline_service.repository.TweetClient;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+@Slf4j
+public class TimelineRebuildService {
+
+    private static final Comparator<TimelineEntry> NEWEST_FIRST = Comparator.comparingLong(TimelineEntry::getTweetAt)
+            .thenComparing(TimelineEntry::getTweetId)
+            .reversed();
+
+    private final FollowClient followClient;
+    private final TweetClient tweetClient;
+    private final TimelineRepository timelineRepository;
+    private final TimelineCacheRepository timelineCacheRepository;
+    private final TimelineRetentionService timelineRetentionService;
+    private final HighFollowerAuthorService highFollowerAuthorService;
+    private final ExecutorService fetchExecutor;
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean jobRunning = new AtomicBoolean();
+
+    @Value("${app.timeline.rebuild.following-page-size:1000}")
+    private int followingPageSize;
+    @Value("${app.timeline.rebuild.tweets-per-followee:20}")
+    private int tweetsPerFollowee;
+    @Value("${app.timeline.rebuild.max-entries:500}")
+    private int maxEntries;
+    @Value("${app.timeline.rebuild.job.page-size:100}")
+    private int jobPageSize;
+    @Value("${app.timeline.rebuild.job.delay-ms:200}")
+    private long jobDelayMs;
+    @Value("${app.timeline.hybrid.enabled:false}")
+    private boolean hybridEnabled;
+
+    public TimelineRebuildService(
+            FollowClient followClient,
+            TweetClient tweetClient,
+            TimelineRepository timelineRepository,
+            TimelineCacheRepository timelineCacheRepository,
+            TimelineRetentionService timelineRetentionService,
+            HighFollowerAuthorService highFollowerAuthorService,
+            @Value("${app.timeline.rebuild.concurrency:8}") int concurrency) {
+        this.followClient = followClient;
+        this.tweetClient = tweetClient;
+        this.timelineRepository = timelineRepository;
+        this.timelineCacheRepository = timelineCacheRepository;
+        this.timelineRetentionService = timelineRetentionService;
+        this.highFollowerAuthorService = highFollowerAuthorService;
+        // Bounds how many requests a single rebuild keeps in flight against tweet-service
+        this.fetchExecutor = Executors.newFixedThreadPool(concurrency);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public TimelineRebuildResponse rebuildTimeline(String userId) {
+        return rebuild(userId);
+    }
+
+    // Used when a returning user's timeline was skipped by fan-out while they were away. Runs on the read path,
+    // so a failed rebuild leaves the stored timeline as it was and the read goes on with it
+    public void materializeTimeline(String userId) {
+        try {
+            rebuild(userId);
+        } catch (Exception e) {
+            log.warn("TimelineRebuildService::materializeTimeline - Rebuild aborted for userId: {}. Error: {}",
+                    userId, e.getMessage());
+        }
+    }
+
+    // Walks every user that currently has a timeline, one user at a time with a pause in between,
+    // so the job never competes with live fan-out for tweet-service capacity
+    @PreAuthorize("hasRole('ADMIN')")
+    public void rebuildAllTimelines() {
+        if (!jobRunning.compareAndSet(false, true)) {
+            throw new TimelineServiceException("A timeline rebuild job is already running");
+        }
+        jobExecutor.submit(() -> {
+            try {
+                runRebuildJob();
+            } finally {
+                jobRunning.set(false);
+            }
+        });
+    }
+
+    private void runRebuildJob() {
+        log.info("TimelineRebuildService::runRebuildJob - Execution started");
+        long startedAt = System.currentTimeMillis();
+        long rebuilt = 0;
+        long failed = 0;
+        String lastUserId = null;
+        while (true) {
+            List<String> userIds = timelineRepository.findUserIdsAfter(lastUserId, jobPageSize);
+            if (userIds.isEmpty()) {
+                break;
+            }
+            for (String userId : userIds) {
+                try {
+                    rebuild(userId);
+                    rebuilt++;
+                } catch (Exception e) {
+                    failed++;
+                    log.error("TimelineRebuildService::runRebuildJob - Failed to rebuild userId: {}. Error: {}",
+                            userId, e.getMessage(), e);
+                }
+                try {
+                    Thread.sleep(jobDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("TimelineRebuildService::runRebuildJob - Interrupted after {} users", rebuilt + failed);
+                    return;
+                }
+            }
+            lastUserId = userIds.get(userIds.size() - 1);
+        }
+        log.info("TimelineRebuildService::runRebuildJob - Execution ended, rebuilt: {}, failed: {}, took: {} ms",
+                rebuilt, failed, System.currentTimeMillis() - startedAt);
+    }
+
+    private TimelineRebuildResponse rebuild(String userId) {
+        log.info("TimelineRebuildService::rebuild - Execution started for userId: {}", userId);
+        long startedAt = System.currentTimeMillis();
+        List<String> followeeIds = findFollowingIds(userId);
+        List<String> pushedFolloweeIds = followeeIds;
+        if (hybridEnabled && !followeeIds.isEmpty()) {
+            // High-follower authors are pulled at read time and never live in the stored timeline
+            pushedFolloweeIds = followeeIds.stream()
+                    .filter(followeeId -> !highFollowerAuthorService.isHighFollowerAuthor(followeeId))
+                    .toList();
+        }
+
+        List<CompletableFuture<List<TimelineEntry>>> fetches = pushedFolloweeIds.stream()
+                .map(followeeId -> CompletableFuture.supplyAsync(() -> fetchRecentEntries(userId, followeeId), fetchExecutor))
+                .toList();
+        List<TimelineEntry> newestEntries = fetches.stream()
+                .map(CompletableFuture::join)
+                .flatMap(List::stream)
+                .sorted(NEWEST_FIRST)
+                .limit(maxEntries)
+                .toList();
+
+        int written = timelineRepository.upsertAll(newestEntries);
+        // Anything left from authors the user no longer follows is stale. The following list is known to be complete
+        // here, but an empty one is never used to prune: NotIn an empty list would match the whole timeline
+        long removed = pushedFolloweeIds.isEmpty()
+                ? 0
+                : timelineRepository.deleteByUserIdAndTweetOwnerIdNotIn(userId, pushedFolloweeIds);
+        timelineCacheRepository.evict(userId);
+        timelineRetentionService.markForCompaction(List.of(userId));
+
+        long durationMs = System.currentTimeMillis() - startedAt;
+        log.info("TimelineRebuildService::rebuild - Execution ended for userId: {}, followees: {}, written: {}, removed: {}, took: {} ms",
+                userId, followeeIds.size(), written, removed, durationMs);
+        return TimelineRebuildResponse.builder()
+                .userId(userId)
+                .followees(followeeIds.size())
+                .writtenEntries(written)
+                .removedEntries(removed)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    // Pruning trusts this list, so anything short of every page is an error rather than a partial result.
+    // An unfollow while paging shifts a later followee onto a page already read, which shows up as fewer ids
+    // than the largest total reported
+    private List<String> findFollowingIds(String userId) {
+        Set<String> followingIds = new LinkedHashSet<>();
+        long expectedTotal = 0;
+        int page = 1;
+        int totalPages;
+        do {
+            FeignApiResponse<PageResponse<List<FollowResponse>>> followingResponse = followClient.getFollowing(
+                    userId,
+                    page,
+                    followingPageSize,
+                    "createdAt,asc"
+            );
+            PageResponse<List<FollowResponse>> following = followingResponse == null ? null : followingResponse.getResult();
+            if (following == null || following.getContents() == null) {
+                throw new TimelineServiceException("Following lookup returned no result for userId: " + userId
+                        + " at page " + page);
+            }
+            totalPages = following.getTotalPages();
+            expectedTotal = Math.max(expectedTotal, following.getTotalElements());
+            if (following.getContents().isEmpty() && page <= totalPages) {
+                throw new TimelineServiceException("Following lookup returned an empty page " + page + " of "
+                        + totalPages + " for userId: " + userId);
+            }
+            following.getContents().forEach(follow -> followingIds.add(follow.getFollowedId()));
+            page++;
+        } while (page <= totalPages);
+        if (followingIds.size() < expectedTotal) {
+            throw new TimelineServiceException("Following lookup returned " + followingIds.size() + " of "
+                    + expectedTotal + " followees for userId: " + userId);
+        }
+        return new ArrayList<>(followingIds);
+    }
+
+    private List<TimelineEntry> fetchRecentEntries(String userId, String followeeId) {
+        List<TweetResponse> recentTweets = tweetClient.getPublicTweets(followeeId, 1, tweetsPerFollowee, "createdAt,desc")
+                .getResult();
+        if (recentTweets == null) {
+            return List.of();
+        }
+        return recentTweets.stream()
+                .map(tweet -> TimelineEntry.builder()
+                        .userId(userId)
+                        .tweetId(tweet.getId())
+                        .tweetOwnerId(tweet.getUserId())
+                        .tweetAt(tweet.getCreatedAt())
+                        .build())
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+}
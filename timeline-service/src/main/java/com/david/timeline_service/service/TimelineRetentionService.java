@@ -0,0 +1,99 @@
+package com.david.timeline_service.service;
+
+import com.david.timeline_service.entity.TimelineEntry;
+import com.david.timeline_service.repository.TimelineRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineRetentionService {
+
+    private static final String PENDING_USERS_KEY = "timeline:compaction:pending";
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "tweetAt", "tweetId");
+
+    private final TimelineRepository timelineRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.timeline.retention.enabled:true}")
+    private boolean retentionEnabled;
+    @Value("${app.timeline.retention.max-entries:500}")
+    private int maxEntriesPerUser;
+    @Value("${app.timeline.retention.users-per-run:100}")
+    private int usersPerRun;
+    @Value("${app.timeline.retention.delete-batch-size:500}")
+    private int deleteBatchSize;
+
+    // Only users that just received entries can have grown past the cap, so those are the only ones the job visits
+    public void markForCompaction(Collection<String> userIds) {
+        if (!retentionEnabled || userIds.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForSet().add(PENDING_USERS_KEY, userIds.toArray(String[]::new));
+        } catch (DataAccessException e) {
+            log.warn("TimelineRetentionService::markForCompaction - Failed to mark {} users. Error: {}",
+                    userIds.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.timeline.retention.compaction-interval-ms:60000}")
+    public void compact() {
+        if (!retentionEnabled) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<String> userIds;
+        try {
+            userIds = stringRedisTemplate.opsForSet().pop(PENDING_USERS_KEY, usersPerRun);
+        } catch (DataAccessException e) {
+            log.warn("TimelineRetentionService::compact - Failed to read pending users. Error: {}", e.getMessage());
+            return;
+        }
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        long removed = 0;
+        for (String userId : userIds) {
+            removed += trimUser(userId);
+        }
+        long elapsedNanos = sample.stop(meterRegistry.timer("timeline.retention.compaction.duration"));
+        meterRegistry.counter("timeline.retention.entries.removed").increment(removed);
+        log.info("TimelineRetentionService::compact - Trimmed {} users, removed {} entries, took: {} ms",
+                userIds.size(), removed, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    private long trimUser(String userId) {
+        List<TimelineEntry> firstOverCap = timelineRepository.findAllByUserId(userId,
+                PageRequest.of(maxEntriesPerUser, 1, NEWEST_FIRST));
+        if (firstOverCap.isEmpty()) {
+            return 0;
+        }
+        TimelineEntry boundary = firstOverCap.get(0);
+        List<String> expiredIds = timelineRepository.findIdsByUserIdAtOrBefore(userId, boundary.getTweetAt(),
+                        boundary.getTweetId(), PageRequest.of(0, deleteBatchSize)).stream()
+                .map(TimelineEntry::getId)
+                .toList();
+        timelineRepository.deleteAllById(expiredIds);
+        if (expiredIds.size() == deleteBatchSize) {
+            // More is left over; come back to this user on a later run instead of holding the job here
+            markForCompaction(List.of(userId));
+        }
+        return expiredIds.size();
+    }
+}
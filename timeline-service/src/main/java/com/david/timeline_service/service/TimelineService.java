@@ -1,18 +1,29 @@
 package com.david.timeline_service.service;
 
+import com.david.common.dto.CursorPageResponse;
 import com.david.common.dto.FeignApiResponse;
 import com.david.common.dto.PageResponse;
+import com.david.common.dto.comment.CommentCreatedEventPayload;
 import com.david.common.dto.follow.FollowResponse;
 import com.david.common.dto.follow.FollowedEventPayload;
+import com.david.common.dto.profile.AuthorSummaryResponse;
+import com.david.common.dto.profile.ProfileUpdatedEventPayload;
 import com.david.common.dto.tweet.TweetCreatedEventPayload;
+import com.david.common.dto.tweet.TweetLikedEventPayload;
 import com.david.common.dto.tweet.TweetResponse;
+import com.david.timeline_service.dto.FanoutTask;
+import com.david.timeline_service.dto.response.TimelineNewCountResponse;
 import com.david.timeline_service.entity.TimelineEntry;
+import com.david.timeline_service.exception.TimelineServiceException;
 import com.david.timeline_service.repository.FollowClient;
+import com.david.timeline_service.repository.TimelineCacheRepository;
 import com.david.timeline_service.repository.TimelineRepository;
 import com.david.timeline_service.repository.TweetClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -21,100 +32,533 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TimelineService {
 
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "tweetAt", "tweetId");
+
     private final TimelineRepository timelineRepository;
+    private final TimelineCacheRepository timelineCacheRepository;
     private final TweetClient tweetClient;
+    private final TweetHydrationService tweetHydrationService;
+    private final AuthorHydrationService authorHydrationService;
+    private final ImpressionReportService impressionReportService;
+    private final TimelineRetentionService timelineRetentionService;
+    private final TimelineRebuildService timelineRebuildService;
+    private final UserActivityService userActivityService;
+    private final TimelineStreamService timelineStreamService;
+    private final TimelineRankingService timelineRankingService;
+    private final FanoutPartitionService fanoutPartitionService;
     private final FollowClient followClient;
+    private final HighFollowerAuthorService highFollowerAuthorService;
+    private final TimelineMigrationService timelineMigrationService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.timeline.fanout.follower-page-size:1000}")
+    private int fanoutFollowerPageSize;
+    @Value("${app.timeline.fanout.batch-size:500}")
+    private int fanoutBatchSize;
+    @Value("${app.timeline.hybrid.enabled:false}")
+    private boolean hybridEnabled;
+    @Value("${app.timeline.hybrid.follower-threshold:10000}")
+    private long hybridFollowerThreshold;
+    @Value("${app.timeline.hybrid.merge-depth:50}")
+    private int hybridMergeDepth;
+    @Value("${app.timeline.ranking.window:200}")
+    private int rankingWindow;
+    @Value("${app.timeline.new-count.max:99}")
+    private int newCountMax;
 
     public void handleFollowed(FollowedEventPayload payload) {
-        log.info("TimelineService::handleFollowed - Execution started for followerId: {}, followedId: {}",
-                payload.getFollowerId(), payload.getFollowedId());
-        FeignApiResponse<List<TweetResponse>> recentTweets = tweetClient.getPublicTweets(
-                payload.getFollowedId(),
-                1,
-                3,
-                "createdAt,desc"
-        );
-        if (recentTweets.getResult() == null || recentTweets.getResult().isEmpty()) {
-            log.info("No recent tweets found for followedId: {}", payload.getFollowedId());
-            return;
-        }
-        List<TimelineEntry> timelineEntries = recentTweets.getResult()
-                .stream()
-                .map(tweet -> TimelineEntry.builder()
-                        .userId(payload.getFollowerId())
+        handleFollowedBatch(List.of(payload));
+    }
+
+    // Each followed user's recent tweets are fetched once, however many new followers the batch holds
+    public void handleFollowedBatch(List<FollowedEventPayload> payloads) {
+        Map<String, List<FollowedEventPayload>> followsByFollowedId = payloads.stream()
+                .collect(Collectors.groupingBy(FollowedEventPayload::getFollowedId, LinkedHashMap::new, Collectors.toList()));
+        List<TimelineEntry> timelineEntries = new ArrayList<>();
+        followsByFollowedId.forEach((followedId, follows) -> {
+            log.info("TimelineService::handleFollowed - Execution started for followedId: {}, followers: {}",
+                    followedId, follows.size());
+            FeignApiResponse<List<TweetResponse>> recentTweets = tweetClient.getPublicTweets(
+                    followedId,
+                    1,
+                    3,
+                    "createdAt,desc"
+            );
+            if (recentTweets.getResult() == null || recentTweets.getResult().isEmpty()) {
+                log.info("No recent tweets found for followedId: {}", followedId);
+                return;
+            }
+            for (FollowedEventPayload follow : follows) {
+                recentTweets.getResult().forEach(tweet -> timelineEntries.add(TimelineEntry.builder()
+                        .userId(follow.getFollowerId())
                         .tweetId(tweet.getId())
                         .tweetOwnerId(tweet.getUserId())
                         .tweetAt(tweet.getCreatedAt())
-                        .build())
-                .toList();
-        timelineRepository.saveAll(timelineEntries);
-        log.info("TimelineService::handleFollowed - Execution ended for followerId: {}, followedId: {}",
-                payload.getFollowerId(), payload.getFollowedId());
+                        .build()));
+            }
+        });
+        int written = upsertBatch(timelineEntries);
+        log.info("TimelineService::handleFollowed - Execution ended for {} follow events, entries: {}",
+                payloads.size(), written);
     }
 
     public void handleUnfollowed(FollowedEventPayload payload) {
         log.info("TimelineService::handleUnfollowed - Execution started for followerId: {}, followedId: {}",
                 payload.getFollowerId(), payload.getFollowedId());
         timelineRepository.deleteByUserIdAndTweetOwnerId(payload.getFollowerId(), payload.getFollowedId());
+        // The cache only keeps tweet ids, so drop it and let the next read rebuild it from Mongo
+        timelineCacheRepository.evict(payload.getFollowerId());
         log.info("TimelineService::handleUnfollowed - Execution ended for followerId: {}, followedId: {}",
                 payload.getFollowerId(), payload.getFollowedId());
     }
 
+    public void handleTweetDeleted(String tweetId) {
+        timelineRankingService.handleTweetDeleted(tweetId);
+    }
+
+    public void evictDeletedTweet(String tweetId) {
+        log.info("TimelineService::evictDeletedTweet - Evicting cached tweet: {}", tweetId);
+        tweetHydrationService.evict(tweetId);
+    }
+
+    public void handleProfileUpdated(ProfileUpdatedEventPayload payload) {
+        log.info("TimelineService::handleProfileUpdated - Refreshing cached author: {}", payload.getUserId());
+        authorHydrationService.handleProfileUpdated(payload);
+    }
+
+    public void handleTweetLiked(String eventId, TweetLikedEventPayload payload) {
+        timelineRankingService.handleTweetLiked(eventId, payload.getTweetId());
+    }
+
+    public void handleCommentCreated(String eventId, CommentCreatedEventPayload payload) {
+        timelineRankingService.handleCommentCreated(eventId, payload.getTweetId());
+    }
+
     public void handleNewTweet(TweetCreatedEventPayload payload) {
-        log.info("TimelineService::handleNewTweet - Execution started for userId: {}, tweetId: {}",
-                payload.getUserId(), payload.getId());
-        FeignApiResponse<PageResponse<List<FollowResponse>>> followersResponse = followClient.getFollowers(
-                payload.getUserId(),
-                1,
-                1000,
-                "createdAt,desc"
-        );
-        if (followersResponse.getResult() == null || followersResponse.getResult().getSize() == 0) {
-            log.info("No followers found for userId: {}", payload.getUserId());
-            return;
-        }
-        List<String> followerIds = followersResponse.getResult().getContents().stream()
-                .map(FollowResponse::getFollowerId)
-                .toList();
-        List<TimelineEntry> timelineEntries = followerIds.stream()
-                .map(followerId -> TimelineEntry.builder()
-                        .userId(followerId)
-                        .tweetId(payload.getId())
-                        .tweetAt(payload.getCreatedAt())
-                        .tweetOwnerId(payload.getUserId())
-                        .build())
-                .toList();
-        timelineRepository.saveAll(timelineEntries);
-        log.info("TimelineService::handleNewTweet - Execution ended for userId: {}, tweetId: {}",
-                payload.getUserId(), payload.getId());
+        handleNewTweets(List.of(payload));
+    }
+
+    // Tweets are grouped by author so every follower list is walked once per batch, and entries from all
+    // authors share the same bulk writes
+    public void handleNewTweets(List<TweetCreatedEventPayload> payloads) {
+        log.info("TimelineService::handleNewTweets - Execution started for {} tweets", payloads.size());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<String, List<TweetCreatedEventPayload>> tweetsByAuthor = payloads.stream()
+                .collect(Collectors.groupingBy(TweetCreatedEventPayload::getUserId, LinkedHashMap::new, Collectors.toList()));
+        List<TimelineEntry> batch = new ArrayList<>(fanoutBatchSize);
+        long written = 0;
+        for (Map.Entry<String, List<TweetCreatedEventPayload>> authorTweets : tweetsByAuthor.entrySet()) {
+            written += fanOut(authorTweets.getKey(), authorTweets.getValue(), batch);
+        }
+        written += upsertBatch(batch);
+
+        long elapsedNanos = sample.stop(meterRegistry.timer("timeline.fanout.duration"));
+        meterRegistry.counter("timeline.fanout.entries.written").increment(written);
+        if (written > 0) {
+            double entriesPerSecond = written / Math.max(elapsedNanos / 1_000_000_000.0, 1e-9);
+            meterRegistry.summary("timeline.fanout.entries.per.second").record(entriesPerSecond);
+        }
+        log.info("TimelineService::handleNewTweets - Execution ended for {} tweets, entries: {}, took: {} ms",
+                payloads.size(), written, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    private long fanOut(String authorId, List<TweetCreatedEventPayload> tweets, List<TimelineEntry> batch) {
+        long written = 0;
+        int page = 1;
+        int totalPages;
+        do {
+            // Oldest followers first, so follows made while we walk land on later pages instead of shifting earlier ones
+            FeignApiResponse<PageResponse<List<FollowResponse>>> followersResponse = followClient.getFollowers(
+                    authorId,
+                    page,
+                    fanoutFollowerPageSize,
+                    "createdAt,asc"
+            );
+            PageResponse<List<FollowResponse>> followers = followersResponse.getResult();
+            if (followers == null || followers.getContents() == null || followers.getContents().isEmpty()) {
+                break;
+            }
+            if (page == 1 && isHighFollowerAuthor(authorId, followers.getTotalElements())) {
+                meterRegistry.counter("timeline.fanout.skipped").increment(tweets.size());
+                log.info("TimelineService::fanOut - Skipping fan-out for high-follower userId: {}, followers: {}",
+                        authorId, followers.getTotalElements());
+                return 0;
+            }
+            List<String> followerIds = followers.getContents().stream()
+                    .map(FollowResponse::getFollowerId)
+                    .toList();
+            List<String> activeFollowerIds = userActivityService.filterActive(followerIds);
+            if (activeFollowerIds.size() < followerIds.size()) {
+                meterRegistry.counter("timeline.fanout.inactive.skipped")
+                        .increment((double) (followerIds.size() - activeFollowerIds.size()) * tweets.size());
+            }
+            if (fanoutPartitionService.isEnabled()) {
+                // Partition workers do the writes; this walk only splits recipients into per-partition tasks
+                fanoutPartitionService.dispatch(authorId, tweets, activeFollowerIds);
+            } else {
+                for (String followerId : activeFollowerIds) {
+                    for (TweetCreatedEventPayload tweet : tweets) {
+                        batch.add(TimelineEntry.builder()
+                                .userId(followerId)
+                                .tweetId(tweet.getId())
+                                .tweetAt(tweet.getCreatedAt())
+                                .tweetOwnerId(authorId)
+                                .build());
+                    }
+                    if (batch.size() >= fanoutBatchSize) {
+                        written += upsertBatch(batch);
+                    }
+                }
+            }
+            totalPages = followers.getTotalPages();
+            page++;
+        } while (page <= totalPages);
+        if (page == 1) {
+            log.info("No followers found for userId: {}", authorId);
+        }
+        return written;
+    }
+
+    // Entry point for partition workers; the recipients all hash to the worker's partition
+    public long writeFanoutTask(FanoutTask task) {
+        List<TimelineEntry> batch = new ArrayList<>(fanoutBatchSize);
+        long written = 0;
+        for (String recipientId : task.getRecipientIds()) {
+            for (FanoutTask.TweetRef tweet : task.getTweets()) {
+                batch.add(TimelineEntry.builder()
+                        .userId(recipientId)
+                        .tweetId(tweet.getTweetId())
+                        .tweetAt(tweet.getTweetAt())
+                        .tweetOwnerId(task.getAuthorId())
+                        .build());
+            }
+            if (batch.size() >= fanoutBatchSize) {
+                written += upsertBatch(batch);
+            }
+        }
+        written += upsertBatch(batch);
+        return written;
+    }
+
+    private int upsertBatch(List<TimelineEntry> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int inserted = timelineRepository.upsertAll(batch);
+        timelineCacheRepository.addIfPresent(batch);
+        if (inserted > 0) {
+            timelineStreamService.publish(batch);
+            timelineRetentionService.markForCompaction(batch.stream()
+                    .map(TimelineEntry::getUserId)
+                    .collect(Collectors.toSet()));
+        }
+        batch.clear();
+        return inserted;
+    }
+
+    private boolean isHighFollowerAuthor(String authorId, long followerCount) {
+        return hybridEnabled && highFollowerAuthorService.classify(authorId, followerCount, hybridFollowerThreshold);
     }
 
     public List<TweetResponse> getTimeline(int page, int size, String sortBy) {
+        String userId = getJwt().getSubject();
+        recordActivity(userId);
+        log.info("TimelineService::getTimeline - Fetching timeline for userId: {}, page: {}, size: {}, sortBy: {}",
+                userId, page, size, sortBy);
+        List<String> pulledAuthorIds = hybridEnabled ? highFollowerAuthorService.findFollowedBy(userId) : List.of();
+        if (!pulledAuthorIds.isEmpty()) {
+            List<TweetResponse> tweets = getMergedTimeline(userId, pulledAuthorIds, page, size);
+            log.info("TimelineService::getTimeline - Merged timeline fetched successfully for userId: {}", userId);
+            return tweets;
+        }
+        String[] sortParams = sortBy.split(",");
+        // Entries no longer store their own creation time; tweetAt is the closest equivalent
+        String sortProperty = "createdAt".equals(sortParams[0]) ? "tweetAt" : sortParams[0];
+        Sort sort = Sort.by(Sort.Direction.fromString(sortParams[1]), sortProperty);
+        List<TimelineEntry> timelineEntries;
+        if (isNewestFirst(sort)) {
+            timelineEntries = findNewestEntries(userId, Math.max(0, page - 1) * size, size);
+        } else {
+            Pageable pageable = PageRequest.of(Math.max(0, page - 1), size, sort);
+            timelineEntries = timelineRepository.findByUserId(userId, pageable).getContent();
+        }
+        List<TweetResponse> tweets = hydrate(timelineEntries, Map.of());
+        log.info("TimelineService::getTimeline - Timeline fetched successfully for userId: {}", userId);
+        return tweets;
+    }
+
+    // Ranks only the newest ranking.window entries, so a ranked page costs about the same as a chronological one
+    public List<TweetResponse> getRankedTimeline(int page, int size) {
+        String userId = getJwt().getSubject();
+        recordActivity(userId);
+        log.info("TimelineService::getRankedTimeline - Fetching ranked timeline for userId: {}, page: {}, size: {}",
+                userId, page, size);
+        List<List<TimelineEntry>> sources = new ArrayList<>();
+        sources.add(findNewestEntries(userId, 0, rankingWindow));
+        Map<String, TweetResponse> pulledTweets = new HashMap<>();
+        if (hybridEnabled) {
+            List<String> pulledAuthorIds = highFollowerAuthorService.findFollowedBy(userId);
+            sources.addAll(findPulledEntries(userId, pulledAuthorIds, hybridMergeDepth, pulledTweets));
+        }
+        List<TimelineEntry> recentEntries = mergeByTweetAt(sources, 0, rankingWindow);
+        List<TimelineEntry> pageEntries = timelineRankingService.selectTop(recentEntries, Math.max(0, page - 1) * size, size);
+        List<TweetResponse> tweets = hydrate(pageEntries, pulledTweets);
+        log.info("TimelineService::getRankedTimeline - Ranked timeline fetched successfully for userId: {}", userId);
+        return tweets;
+    }
+
+    public CursorPageResponse<List<TweetResponse>> getTimelineByCursor(String cursor, int size) {
+        String userId = getJwt().getSubject();
+        recordActivity(userId);
+        log.info("TimelineService::getTimelineByCursor - Fetching timeline for userId: {}, cursor: {}, size: {}",
+                userId, cursor, size);
+        TimelineEntry before = decodeCursor(cursor);
+        // One extra entry tells us whether another page exists without running a count query
+        int limit = size + 1;
+        List<List<TimelineEntry>> sources = new ArrayList<>();
+        sources.add(before == null
+                ? findNewestEntries(userId, 0, limit)
+                : timelineRepository.findAllByUserIdBefore(userId, before.getTweetAt(), before.getTweetId(),
+                PageRequest.of(0, limit, NEWEST_FIRST)));
+        Map<String, TweetResponse> pulledTweets = new HashMap<>();
+        if (hybridEnabled) {
+            List<String> pulledAuthorIds = highFollowerAuthorService.findFollowedBy(userId);
+            sources.addAll(findPulledEntries(userId, pulledAuthorIds, hybridMergeDepth, pulledTweets).stream()
+                    .map(entries -> entries.stream()
+                            .filter(entry -> before == null || isOlder(entry, before))
+                            .toList())
+                    .toList());
+        }
+        List<TimelineEntry> merged = mergeByTweetAt(sources, 0, limit);
+        boolean hasNext = merged.size() > size;
+        List<TimelineEntry> pageEntries = hasNext ? merged.subList(0, size) : merged;
+        String nextCursor = hasNext ? encodeCursor(pageEntries.get(pageEntries.size() - 1)) : null;
+        List<TweetResponse> tweets = hydrate(pageEntries, pulledTweets);
+        log.info("TimelineService::getTimelineByCursor - Timeline fetched successfully for userId: {}", userId);
+        return CursorPageResponse.<List<TweetResponse>>builder()
+                .size(size)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .contents(tweets)
+                .build();
+    }
+
+    // Fan-out skipped this user while they were inactive, so catch their timeline up before serving it
+    private void recordActivity(String userId) {
+        // A cache built before the user's legacy entries moved over would hide them, so drop it
+        if (timelineMigrationService.migrateUser(userId, timelineCacheRepository.getMaxEntries())) {
+            timelineCacheRepository.evict(userId);
+        }
+        if (userActivityService.recordActivity(userId)) {
+            log.info("TimelineService::recordActivity - Materializing timeline for returning userId: {}", userId);
+            timelineRebuildService.materializeTimeline(userId);
+        }
+    }
+
+    // The Redis timeline holds far more than newCountMax entries, so a warm cache answers exactly;
+    // otherwise Mongo counts from the index alone. Tweets pulled from high-follower authors are not counted
+    public TimelineNewCountResponse countNewEntries(long sinceTweetAt) {
+        String userId = getJwt().getSubject();
+        recordActivity(userId);
+        long count = timelineCacheRepository.countNewer(userId, sinceTweetAt)
+                .orElseGet(() -> timelineRepository.countNewer(userId, sinceTweetAt, newCountMax + 1));
+        log.info("TimelineService::countNewEntries - userId: {}, since: {}, count: {}", userId, sinceTweetAt, count);
+        return TimelineNewCountResponse.builder()
+                .count(Math.min(count, newCountMax))
+                .capped(count > newCountMax)
+                .build();
+    }
+
+    public SseEmitter streamTimeline() {
+        String userId = getJwt().getSubject();
+        recordActivity(userId);
+        log.info("TimelineService::streamTimeline - Opening timeline stream for userId: {}", userId);
+        return timelineStreamService.subscribe(userId);
+    }
+
+    static String encodeCursor(TimelineEntry entry) {
+        String raw = entry.getTweetAt() + ":" + entry.getTweetId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TimelineEntry decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return TimelineEntry.builder()
+                    .tweetAt(Long.parseLong(raw.substring(0, separator)))
+                    .tweetId(raw.substring(separator + 1))
+                    .build();
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new TimelineServiceException("Invalid timeline cursor: " + cursor, e);
+        }
+    }
+
+    static boolean isOlder(TimelineEntry entry, TimelineEntry before) {
+        return entry.getTweetAt() < before.getTweetAt()
+                || (entry.getTweetAt() == before.getTweetAt() && entry.getTweetId().compareTo(before.getTweetId()) < 0);
+    }
+
+    private Jwt getJwt() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
-            log.warn("TweetService::unlikeTweet - Unauthorized access attempt");
+            log.warn("TimelineService::getJwt - Unauthorized access attempt");
             throw new AuthenticationCredentialsNotFoundException("Unauthorized access");
         }
-        String userId = jwt.getSubject();
-        log.info("TimelineService::getTimeline - Fetching timeline for userId: {}, page: {}, size: {}, sortBy: {}",
-                userId, page, size, sortBy);
-        String[] sortParams = sortBy.split(",");
-        Sort sort = Sort.by(Sort.Direction.fromString(sortParams[1]), sortParams[0]);
-        Pageable pageable = PageRequest.of(Math.max(0, page - 1), size, sort);
-        Page<TimelineEntry> timelineEntries = timelineRepository.findByUserId(userId, pageable);
-        List<String> tweetIds = timelineEntries.stream()
+        return jwt;
+    }
+
+    private boolean isNewestFirst(Sort sort) {
+        Sort.Order tweetAt = sort.getOrderFor("tweetAt");
+        return tweetAt != null && tweetAt.isDescending();
+    }
+
+    // Pages inside the cached window are served from Redis; a cold cache is rebuilt from Mongo, deeper pages go to Mongo
+    private List<TimelineEntry> findNewestEntries(String userId, int offset, int limit) {
+        int maxCachedEntries = timelineCacheRepository.getMaxEntries();
+        if (offset + limit > maxCachedEntries) {
+            return timelineRepository.findAllByUserId(userId, PageRequest.of(offset / limit, limit, NEWEST_FIRST));
+        }
+        Optional<List<TimelineEntry>> cached = timelineCacheRepository.findRange(userId, offset, limit);
+        if (cached.isPresent()) {
+            meterRegistry.counter("timeline.cache.requests", "result", "hit").increment();
+            return cached.get();
+        }
+        meterRegistry.counter("timeline.cache.requests", "result", "miss").increment();
+        List<TimelineEntry> newestEntries = rebuildCache(userId);
+        return newestEntries.stream()
+                .skip(offset)
+                .limit(limit)
+                .toList();
+    }
+
+    public List<TimelineEntry> rebuildCache(String userId) {
+        log.info("TimelineService::rebuildCache - Rebuilding timeline cache for userId: {}", userId);
+        String rebuildToken = timelineCacheRepository.beginRebuild(userId);
+        List<TimelineEntry> newestEntries = timelineRepository.findAllByUserId(userId,
+                PageRequest.of(0, timelineCacheRepository.getMaxEntries(), NEWEST_FIRST));
+        timelineCacheRepository.rebuild(userId, rebuildToken, newestEntries);
+        return newestEntries;
+    }
+
+    // Every source is sorted by tweetAt desc, so page * size items per source are enough to build the requested page
+    private List<TweetResponse> getMergedTimeline(String userId, List<String> pulledAuthorIds, int page, int size) {
+        int window = Math.max(1, page) * size;
+        List<List<TimelineEntry>> sources = new ArrayList<>();
+        sources.add(findNewestEntries(userId, 0, window));
+        Map<String, TweetResponse> pulledTweets = new HashMap<>();
+        sources.addAll(findPulledEntries(userId, pulledAuthorIds, Math.min(window, hybridMergeDepth), pulledTweets));
+        List<TimelineEntry> pageEntries = mergeByTweetAt(sources, (Math.max(1, page) - 1) * size, size);
+        return hydrate(pageEntries, pulledTweets);
+    }
+
+    private List<List<TimelineEntry>> findPulledEntries(String userId, List<String> authorIds, int depth,
+                                                        Map<String, TweetResponse> pulledTweets) {
+        List<List<TimelineEntry>> sources = new ArrayList<>();
+        for (String authorId : authorIds) {
+            List<TweetResponse> recentTweets = tweetClient.getPublicTweets(authorId, 1, depth, "createdAt,desc")
+                    .getResult();
+            if (recentTweets == null || recentTweets.isEmpty()) {
+                continue;
+            }
+            recentTweets.forEach(tweet -> pulledTweets.put(tweet.getId(), tweet));
+            sources.add(recentTweets.stream()
+                    .map(tweet -> TimelineEntry.builder()
+                            .userId(userId)
+                            .tweetId(tweet.getId())
+                            .tweetOwnerId(tweet.getUserId())
+                            .tweetAt(tweet.getCreatedAt())
+                            .build())
+                    .toList());
+        }
+        return sources;
+    }
+
+    private List<TweetResponse> hydrate(List<TimelineEntry> entries, Map<String, TweetResponse> pulledTweets) {
+        tweetHydrationService.putAll(pulledTweets.values());
+        List<String> tweetIds = entries.stream()
                 .map(TimelineEntry::getTweetId)
                 .toList();
-        FeignApiResponse<List<TweetResponse>> tweetsResponse = tweetClient.getTweetsByIds(tweetIds);
-        log.info("TimelineService::getTimeline - Timeline fetched successfully for userId: {}", userId);
-        return tweetsResponse.getResult();
+        List<TweetResponse> tweets = tweetHydrationService.getTweetsByIds(tweetIds);
+        if (tweets.isEmpty()) {
+            return tweets;
+        }
+        Set<String> authorIds = tweets.stream()
+                .map(TweetResponse::getUserId)
+                .collect(Collectors.toSet());
+        Map<String, AuthorSummaryResponse> authors =
+                authorHydrationService.getAuthorsByIds("Bearer " + getJwt().getTokenValue(), authorIds);
+        Set<String> likedTweetIds = findLikedTweetIds(tweets);
+        impressionReportService.report(getJwt(), tweets.stream()
+                .map(TweetResponse::getId)
+                .toList());
+        // Cached tweets are shared between viewers, so viewer-specific fields go on a copy
+        return tweets.stream()
+                .map(tweet -> tweet.toBuilder()
+                        .author(authors.get(tweet.getUserId()))
+                        .likedByMe(likedTweetIds.contains(tweet.getId()))
+                        .build())
+                .toList();
+    }
+
+    private Set<String> findLikedTweetIds(List<TweetResponse> tweets) {
+        List<String> tweetIds = tweets.stream()
+                .map(TweetResponse::getId)
+                .toList();
+        List<String> likedTweetIds = tweetClient.getLikedTweetIds(getJwt().getSubject(), tweetIds).getResult();
+        return likedTweetIds == null ? Set.of() : new HashSet<>(likedTweetIds);
+    }
+
+    static List<TimelineEntry> mergeByTweetAt(List<List<TimelineEntry>> sources, int skip, int limit) {
+        PriorityQueue<MergeCursor> heap = new PriorityQueue<>(
+                Comparator.comparingLong((MergeCursor cursor) -> cursor.current().getTweetAt())
+                        .thenComparing(cursor -> cursor.current().getTweetId())
+                        .reversed());
+        for (List<TimelineEntry> source : sources) {
+            if (!source.isEmpty()) {
+                heap.add(new MergeCursor(source, 0));
+            }
+        }
+        Set<String> seenTweetIds = new HashSet<>();
+        List<TimelineEntry> merged = new ArrayList<>(limit);
+        int skipped = 0;
+        while (!heap.isEmpty() && merged.size() < limit) {
+            MergeCursor cursor = heap.poll();
+            TimelineEntry entry = cursor.current();
+            if (cursor.index() + 1 < cursor.source().size()) {
+                heap.add(new MergeCursor(cursor.source(), cursor.index() + 1));
+            }
+            if (!seenTweetIds.add(entry.getTweetId())) {
+                continue;
+            }
+            if (skipped < skip) {
+                skipped++;
+                continue;
+            }
+            merged.add(entry);
+        }
+        return merged;
+    }
+
+    private record MergeCursor(List<TimelineEntry> source, int index) {
+
+        TimelineEntry current() {
+            return source.get(index);
+        }
     }
 }
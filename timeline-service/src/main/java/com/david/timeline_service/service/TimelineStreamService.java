@@ -0,0 +1,287 @@
+package com.david.timeline_service.service;
+
+import com.david.timeline_service.dto.TimelineStreamBroadcast;
+import com.david.timeline_service.dto.response.TimelineUpdateResponse;
+import com.david.timeline_service.entity.TimelineEntry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+// Subscribers are held by the instance their stream is open on, while entries are written by whichever instance
+// consumed the event. Every instance advertises its streaming users in a Redis sorted set, scored by when the entry
+// lapses, and keeps a copy of the whole set; entries for users in it are broadcast over pub/sub, as tweet-service
+// does for cache invalidations, and each instance delivers them to the streams it holds.
+@Service
+@Slf4j
+public class TimelineStreamService implements MessageListener {
+
+    public static final String BROADCAST_CHANNEL = "timeline:stream:updates";
+    private static final String PRESENCE_KEY = "timeline:stream:presence";
+
+    private final Map<String, List<Subscriber>> subscribersByUserId = new ConcurrentHashMap<>();
+    private final String instanceId = UUID.randomUUID().toString();
+    private volatile Set<String> streamingUserIds = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sendExecutor;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration timeout;
+    private final Duration presenceTtl;
+    private final int maxStreamsPerUser;
+    private final int queueCapacity;
+
+    public TimelineStreamService(
+            StringRedisTemplate stringRedisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.timeline.stream.timeout:30m}") Duration timeout,
+            @Value("${app.timeline.stream.presence-ttl:60s}") Duration presenceTtl,
+            @Value("${app.timeline.stream.max-streams-per-user:3}") int maxStreamsPerUser,
+            @Value("${app.timeline.stream.queue-capacity:100}") int queueCapacity,
+            @Value("${app.timeline.stream.send-threads:4}") int sendThreads) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.timeout = timeout;
+        this.presenceTtl = presenceTtl;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.queueCapacity = queueCapacity;
+        // Idle streams hold no thread; only subscribers with queued events occupy a sender
+        this.sendExecutor = Executors.newFixedThreadPool(sendThreads);
+        Gauge.builder("timeline.stream.subscribers", subscribersByUserId,
+                        subscribers -> subscribers.values().stream().mapToInt(List::size).sum())
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(String userId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        List<Subscriber> subscribers = subscribersByUserId.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>());
+        subscribers.add(subscriber);
+        // Reconnecting clients often leave the old stream half-open, so the oldest one gives way
+        while (subscribers.size() > maxStreamsPerUser) {
+            Subscriber oldest = subscribers.get(0);
+            remove(oldest);
+            oldest.emitter.complete();
+        }
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscriber.enqueue(SseEmitter.event().name("connected").data(userId));
+        // Told to the other instances right away, rather than at their next presence refresh
+        streamingUserIds.add(userId);
+        advertise(Set.of(userId));
+        broadcast(TimelineStreamBroadcast.builder().origin(instanceId).streamUserId(userId).build());
+        log.info("TimelineStreamService::subscribe - Stream opened for userId: {}", userId);
+        return emitter;
+    }
+
+    // Delivered here directly; broadcast only for users with a stream open on some instance
+    public void publish(Collection<TimelineEntry> entries) {
+        if (streamingUserIds.isEmpty()) {
+            return;
+        }
+        List<TimelineStreamBroadcast.Update> updates = new ArrayList<>();
+        for (TimelineEntry entry : entries) {
+            if (!streamingUserIds.contains(entry.getUserId())) {
+                continue;
+            }
+            TimelineStreamBroadcast.Update update = TimelineStreamBroadcast.Update.builder()
+                    .userId(entry.getUserId())
+                    .tweetId(entry.getTweetId())
+                    .tweetOwnerId(entry.getTweetOwnerId())
+                    .tweetAt(entry.getTweetAt())
+                    .build();
+            deliver(update);
+            updates.add(update);
+        }
+        if (!updates.isEmpty()) {
+            broadcast(TimelineStreamBroadcast.builder().origin(instanceId).updates(updates).build());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        TimelineStreamBroadcast broadcast;
+        try {
+            broadcast = objectMapper.readValue(message.getBody(), TimelineStreamBroadcast.class);
+        } catch (IOException e) {
+            log.warn("TimelineStreamService::onMessage - Ignoring unreadable broadcast. Error: {}", e.getMessage());
+            return;
+        }
+        if (instanceId.equals(broadcast.getOrigin())) {
+            return;
+        }
+        if (broadcast.getStreamUserId() != null) {
+            streamingUserIds.add(broadcast.getStreamUserId());
+        }
+        if (broadcast.getUpdates() != null) {
+            broadcast.getUpdates().forEach(this::deliver);
+        }
+    }
+
+    // Streams with queued events are already producing traffic and skip the heartbeat. Presence is refreshed on the
+    // same beat: this instance's users are re-advertised and lapsed ones dropped from the shared set
+    @Scheduled(fixedDelayString = "${app.timeline.stream.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        subscribersByUserId.values().forEach(subscribers -> subscribers.forEach(subscriber -> {
+            if (subscriber.pending.isEmpty()) {
+                subscriber.enqueue(SseEmitter.event().comment("heartbeat"));
+            }
+        }));
+        advertise(subscribersByUserId.keySet());
+        refreshStreamingUserIds();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribersByUserId.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribersByUserId.clear();
+        sendExecutor.shutdownNow();
+    }
+
+    private void deliver(TimelineStreamBroadcast.Update update) {
+        List<Subscriber> subscribers = subscribersByUserId.get(update.getUserId());
+        if (subscribers == null) {
+            return;
+        }
+        TimelineUpdateResponse response = TimelineUpdateResponse.builder()
+                .tweetId(update.getTweetId())
+                .tweetOwnerId(update.getTweetOwnerId())
+                .tweetAt(update.getTweetAt())
+                .build();
+        subscribers.forEach(subscriber -> subscriber.enqueue(SseEmitter.event().name("tweet").data(response)));
+    }
+
+    // Nothing is removed on close, since another instance may hold a stream for the same user; the entry lapses
+    // unless someone re-advertises it
+    private void advertise(Set<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        double lapsesAt = System.currentTimeMillis() + presenceTtl.toMillis();
+        Set<ZSetOperations.TypedTuple<String>> tuples = userIds.stream()
+                .map(userId -> ZSetOperations.TypedTuple.of(userId, lapsesAt))
+                .collect(Collectors.toSet());
+        try {
+            stringRedisTemplate.opsForZSet().add(PRESENCE_KEY, tuples);
+        } catch (DataAccessException e) {
+            log.warn("TimelineStreamService::advertise - Failed to advertise {} streaming users. Error: {}",
+                    userIds.size(), e.getMessage());
+        }
+    }
+
+    // Keeps the local users even if Redis cannot be read, so streams on this instance are never cut off
+    private void refreshStreamingUserIds() {
+        Set<String> refreshed = ConcurrentHashMap.newKeySet();
+        refreshed.addAll(subscribersByUserId.keySet());
+        try {
+            long now = System.currentTimeMillis();
+            stringRedisTemplate.opsForZSet().removeRangeByScore(PRESENCE_KEY, 0, now);
+            Set<String> advertised = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(PRESENCE_KEY, now, Double.POSITIVE_INFINITY);
+            if (advertised != null) {
+                refreshed.addAll(advertised);
+            }
+        } catch (DataAccessException e) {
+            log.warn("TimelineStreamService::refreshStreamingUserIds - Failed to read streaming users. Error: {}",
+                    e.getMessage());
+            refreshed.addAll(streamingUserIds);
+        }
+        streamingUserIds = refreshed;
+    }
+
+    private void broadcast(TimelineStreamBroadcast broadcast) {
+        try {
+            stringRedisTemplate.convertAndSend(BROADCAST_CHANNEL, objectMapper.writeValueAsString(broadcast));
+        } catch (JsonProcessingException | DataAccessException e) {
+            log.warn("TimelineStreamService::broadcast - Failed to broadcast stream updates. Error: {}", e.getMessage());
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribersByUserId.computeIfPresent(subscriber.userId, (userId, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private final class Subscriber {
+
+        private final String userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> pending = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean overflowed;
+
+        private Subscriber(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        // A client that cannot keep up loses its backlog and is told to refetch, instead of buffering without bound
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (!pending.offer(event)) {
+                overflowed = true;
+                pending.clear();
+                meterRegistry.counter("timeline.stream.overflows").increment();
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sendExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    if (overflowed) {
+                        overflowed = false;
+                        emitter.send(SseEmitter.event().name("resync").data(userId));
+                    }
+                    SseEmitter.SseEventBuilder event = pending.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.info("TimelineStreamService::drain - Stream closed for userId: {}. Error: {}", userId, e.getMessage());
+                remove(this);
+                pending.clear();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!pending.isEmpty() || overflowed) {
+                scheduleDrain();
+            }
+        }
+    }
+}
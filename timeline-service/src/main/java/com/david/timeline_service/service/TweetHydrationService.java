@@ -0,0 +1,76 @@
+package com.david.timeline_service.service;
+
+import com.david.common.dto.tweet.TweetBatchResponse;
+import com.david.common.dto.tweet.TweetResponse;
+import com.david.timeline_service.repository.TweetClient;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class TweetHydrationService {
+
+    private final TweetClient tweetClient;
+    private final Cache<String, TweetResponse> tweetCache;
+
+    public TweetHydrationService(
+            TweetClient tweetClient,
+            MeterRegistry meterRegistry,
+            @Value("${app.timeline.hydration.max-size:50000}") long maxSize,
+            @Value("${app.timeline.hydration.ttl:30s}") Duration ttl) {
+        this.tweetClient = tweetClient;
+        // A short TTL keeps like counts close to tweet-service without any update events
+        this.tweetCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tweetCache, "timeline.hydration");
+        Gauge.builder("timeline.hydration.hit.ratio", tweetCache, cache -> cache.stats().hitRate())
+                .register(meterRegistry);
+    }
+
+    public List<TweetResponse> getTweetsByIds(List<String> tweetIds) {
+        if (tweetIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, TweetResponse> tweetsById = tweetCache.getAll(tweetIds, this::loadTweets);
+        log.info("TweetHydrationService::getTweetsByIds - Resolved {} of {} tweets", tweetsById.size(), tweetIds.size());
+        return tweetIds.stream()
+                .map(tweetsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public void putAll(Collection<TweetResponse> tweets) {
+        tweets.forEach(tweet -> tweetCache.put(tweet.getId(), tweet));
+    }
+
+    public void evict(String tweetId) {
+        tweetCache.invalidate(tweetId);
+    }
+
+    private Map<String, TweetResponse> loadTweets(Set<? extends String> missingIds) {
+        List<String> ids = new ArrayList<>(missingIds);
+        log.info("TweetHydrationService::loadTweets - Fetching {} tweets from tweet-service", ids.size());
+        TweetBatchResponse batch = tweetClient.getTweetsByIds(ids).getResult();
+        if (batch == null || batch.getTweets() == null) {
+            return Map.of();
+        }
+        if (batch.getMissingIds() != null && !batch.getMissingIds().isEmpty()) {
+            log.info("TweetHydrationService::loadTweets - {} tweets no longer available", batch.getMissingIds().size());
+        }
+        return batch.getTweets().stream()
+                .collect(Collectors.toMap(TweetResponse::getId, tweet -> tweet, (a, b) -> a));
+    }
+}
@@ -0,0 +1,100 @@
+package com.david.timeline_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@Slf4j
+public class UserActivityService {
+
+    private static final String ACTIVE_USERS_KEY = "timeline:active-users";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Cache<String, Boolean> recentlyRecorded;
+    private final boolean enabled;
+    private final Duration activeWindow;
+
+    public UserActivityService(
+            StringRedisTemplate stringRedisTemplate,
+            @Value("${app.timeline.activity.enabled:false}") boolean enabled,
+            @Value("${app.timeline.activity.window:14d}") Duration activeWindow,
+            @Value("${app.timeline.activity.record-interval:5m}") Duration recordInterval) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.activeWindow = activeWindow;
+        // Repeated reads from the same user within the interval never reach Redis
+        this.recentlyRecorded = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(recordInterval)
+                .build();
+    }
+
+    // Returns true when the user was outside the active window, i.e. fan-out has been skipping them
+    public boolean recordActivity(String userId) {
+        if (!enabled || recentlyRecorded.getIfPresent(userId) != null) {
+            return false;
+        }
+        recentlyRecorded.put(userId, Boolean.TRUE);
+        long now = System.currentTimeMillis();
+        try {
+            Double lastActiveAt = stringRedisTemplate.opsForZSet().score(ACTIVE_USERS_KEY, userId);
+            stringRedisTemplate.opsForZSet().add(ACTIVE_USERS_KEY, userId, now);
+            return lastActiveAt == null || lastActiveAt < now - activeWindow.toMillis();
+        } catch (DataAccessException e) {
+            log.warn("UserActivityService::recordActivity - Failed to record activity for userId: {}. Error: {}",
+                    userId, e.getMessage());
+            return false;
+        }
+    }
+
+    // Falls back to treating everyone as active, so a Redis outage costs extra writes rather than missing entries
+    public List<String> filterActive(List<String> userIds) {
+        if (!enabled || userIds.isEmpty()) {
+            return userIds;
+        }
+        long cutoff = System.currentTimeMillis() - activeWindow.toMillis();
+        try {
+            List<Double> lastActiveAts = stringRedisTemplate.opsForZSet().score(ACTIVE_USERS_KEY, userIds.toArray());
+            if (lastActiveAts == null) {
+                return userIds;
+            }
+            List<String> activeUserIds = new ArrayList<>(userIds.size());
+            for (int i = 0; i < userIds.size(); i++) {
+                Double lastActiveAt = lastActiveAts.get(i);
+                if (lastActiveAt != null && lastActiveAt >= cutoff) {
+                    activeUserIds.add(userIds.get(i));
+                }
+            }
+            return activeUserIds;
+        } catch (DataAccessException e) {
+            log.warn("UserActivityService::filterActive - Failed to read activity for {} users. Error: {}",
+                    userIds.size(), e.getMessage());
+            return userIds;
+        }
+    }
+
+    // Users past the window read as inactive whether or not they are in the set, so they can be dropped
+    @Scheduled(fixedDelayString = "${app.timeline.activity.prune-interval-ms:3600000}")
+    public void pruneInactiveUsers() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - activeWindow.toMillis();
+        try {
+            Long removed = stringRedisTemplate.opsForZSet().removeRangeByScore(ACTIVE_USERS_KEY, 0, cutoff);
+            log.info("UserActivityService::pruneInactiveUsers - Removed {} inactive users", removed);
+        } catch (DataAccessException e) {
+            log.warn("UserActivityService::pruneInactiveUsers - Failed to prune inactive users. Error: {}", e.getMessage());
+        }
+    }
+}
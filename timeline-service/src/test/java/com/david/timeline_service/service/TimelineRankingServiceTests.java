@@ -0,0 +1,66 @@
+package com.david.timeline_service.service;
+
+import com.david.timeline_service.entity.TweetEngagement;
+import com.david.timeline_service.repository.TweetEngagementRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TimelineRankingServiceTests {
+
+	private MongoTemplate mongoTemplate;
+	private TimelineRankingService timelineRankingService;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate = mock(MongoTemplate.class);
+		timelineRankingService = new TimelineRankingService(mongoTemplate, mock(TweetEngagementRepository.class));
+		ReflectionTestUtils.setField(timelineRankingService, "likeWeight", 1.0);
+		ReflectionTestUtils.setField(timelineRankingService, "commentWeight", 2.0);
+		ReflectionTestUtils.setField(timelineRankingService, "halfLife", Duration.ofHours(6));
+	}
+
+	@Test
+	void countAndScoreAreWrittenInOneUpdateGuardedByTheEventId() {
+		when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(TweetEngagement.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+		timelineRankingService.handleTweetLiked("event-1", "t1");
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(TweetEngagement.class));
+		assertThat(query.getValue().getQueryObject()).containsEntry("_id", "t1");
+		assertThat(query.getValue().getQueryObject().get("recentEventIds", Document.class)).containsEntry("$ne", "event-1");
+		List<Document> stages = ((AggregationUpdate) update.getValue()).toPipeline(Aggregation.DEFAULT_CONTEXT);
+		assertThat(stages).hasSize(2);
+		assertThat(stages.get(0).get("$set", Document.class)).containsKeys("likes", "recentEventIds");
+		assertThat(stages.get(1).get("$set", Document.class)).containsKey("engagementScore");
+	}
+
+	// The document already lists the event, so the upsert collides with it on _id both times
+	@Test
+	void redeliveredEventIsNotCountedAgain() {
+		when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(TweetEngagement.class)))
+				.thenThrow(new DuplicateKeyException("E11000"));
+
+		timelineRankingService.handleCommentCreated("event-1", "t1");
+
+		verify(mongoTemplate, times(2)).upsert(any(Query.class), any(UpdateDefinition.class), eq(TweetEngagement.class));
+	}
+}
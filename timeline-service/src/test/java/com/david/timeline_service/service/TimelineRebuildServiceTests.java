@@ -0,0 +1,179 @@
+package com.david.timeline_service.service;
+
+import com.david.common.dto.FeignApiResponse;
+import com.david.common.dto.PageResponse;
+import com.david.common.dto.follow.FollowResponse;
+import com.david.common.dto.tweet.TweetResponse;
+import com.david.timeline_service.entity.TimelineEntry;
+import com.david.timeline_service.exception.TimelineServiceException;
+import com.david.timeline_service.repository.FollowClient;
+import com.david.timeline_service.repository.TimelineCacheRepository;
+import com.david.timeline_service.repository.TimelineRepository;
+import com.david.timeline_service.repository.TimelineRepositoryCustomImpl;
+import com.david.timeline_service.repository.TweetClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class TimelineRebuildServiceTests {
+
+	private FollowClient followClient;
+	private TweetClient tweetClient;
+	private TimelineRepository timelineRepository;
+	private TimelineCacheRepository timelineCacheRepository;
+	private HighFollowerAuthorService highFollowerAuthorService;
+	private TimelineRebuildService timelineRebuildService;
+
+	@BeforeEach
+	void setUp() {
+		followClient = mock(FollowClient.class);
+		tweetClient = mock(TweetClient.class);
+		timelineRepository = mock(TimelineRepository.class);
+		timelineCacheRepository = mock(TimelineCacheRepository.class);
+		highFollowerAuthorService = mock(HighFollowerAuthorService.class);
+		timelineRebuildService = new TimelineRebuildService(followClient, tweetClient, timelineRepository,
+				timelineCacheRepository, mock(TimelineRetentionService.class), highFollowerAuthorService, 2);
+		ReflectionTestUtils.setField(timelineRebuildService, "followingPageSize", 2);
+		ReflectionTestUtils.setField(timelineRebuildService, "tweetsPerFollowee", 20);
+		ReflectionTestUtils.setField(timelineRebuildService, "maxEntries", 500);
+		when(tweetClient.getPublicTweets(anyString(), anyInt(), anyInt(), anyString()))
+				.thenReturn(response(List.<TweetResponse>of()));
+	}
+
+	@AfterEach
+	void tearDown() {
+		timelineRebuildService.shutdown();
+	}
+
+	@Test
+	void prunesAuthorsOutsideACompleteFollowingList() {
+		when(followClient.getFollowing(eq("u"), eq(1), anyInt(), anyString())).thenReturn(page(3, 2, "a", "b"));
+		when(followClient.getFollowing(eq("u"), eq(2), anyInt(), anyString())).thenReturn(page(3, 2, "c"));
+
+		timelineRebuildService.rebuildTimeline("u");
+
+		verify(timelineRepository).deleteByUserIdAndTweetOwnerIdNotIn("u", List.of("a", "b", "c"));
+		verify(timelineCacheRepository).evict("u");
+	}
+
+	@Test
+	void failedFollowingPageAbortsWithoutPruning() {
+		when(followClient.getFollowing(eq("u"), eq(1), anyInt(), anyString())).thenReturn(page(3, 2, "a", "b"));
+		when(followClient.getFollowing(eq("u"), eq(2), anyInt(), anyString()))
+				.thenThrow(new RuntimeException("follow-service unavailable"));
+
+		assertThatThrownBy(() -> timelineRebuildService.rebuildTimeline("u")).isInstanceOf(RuntimeException.class);
+
+		verifyNoInteractions(timelineRepository, timelineCacheRepository);
+	}
+
+	@Test
+	void missingResultAbortsWithoutPruning() {
+		when(followClient.getFollowing(eq("u"), eq(1), anyInt(), anyString()))
+				.thenReturn(response((PageResponse<List<FollowResponse>>) null));
+
+		assertThatThrownBy(() -> timelineRebuildService.rebuildTimeline("u")).isInstanceOf(TimelineServiceException.class);
+
+		verifyNoInteractions(timelineRepository);
+	}
+
+	@Test
+	void emptyPageInsideTheReportedRangeAbortsWithoutPruning() {
+		when(followClient.getFollowing(eq("u"), eq(1), anyInt(), anyString())).thenReturn(page(3, 2, "a", "b"));
+		when(followClient.getFollowing(eq("u"), eq(2), anyInt(), anyString())).thenReturn(page(3, 2));
+
+		assertThatThrownBy(() -> timelineRebuildService.rebuildTimeline("u")).isInstanceOf(TimelineServiceException.class);
+
+		verifyNoInteractions(timelineRepository);
+	}
+
+	// An unfollow between pages shifts "c" onto page 1, which was already read
+	@Test
+	void followingListThatShrinksWhilePagingAbortsWithoutPruning() {
+		when(followClient.getFollowing(eq("u"), eq(1), anyInt(), anyString())).thenReturn(page(3, 2, "a", "b"));
+		when(followClient.getFollowing(eq("u"), eq(2), anyInt(), anyString())).thenReturn(page(2, 1));
+
+		assertThatThrownBy(() -> timelineRebuildService.rebuildTimeline("u")).isInstanceOf(TimelineServiceException.class);
+
+		verifyNoInteractions(timelineRepository);
+	}
+
+	@Test
+	void emptyFollowingListNeverPrunes() {
+		when(followClient.getFollowing(eq("u"), eq(1), anyInt(), anyString())).thenReturn(page(0, 0));
+
+		timelineRebuildService.rebuildTimeline("u");
+
+		verify(timelineRepository, never()).deleteByUserIdAndTweetOwnerIdNotIn(anyString(), anyCollection());
+	}
+
+	@Test
+	void materializeKeepsTheStoredTimelineWhenTheRebuildFails() {
+		when(followClient.getFollowing(eq("u"), eq(1), anyInt(), anyString()))
+				.thenThrow(new RuntimeException("follow-service unavailable"));
+
+		timelineRebuildService.materializeTimeline("u");
+
+		verifyNoInteractions(timelineRepository, timelineCacheRepository);
+	}
+
+	@Test
+	void pulledAuthorsAreLeftOutOfThePushedTimeline() {
+		ReflectionTestUtils.setField(timelineRebuildService, "hybridEnabled", true);
+		when(followClient.getFollowing(eq("u"), eq(1), anyInt(), anyString())).thenReturn(page(2, 1, "a", "celebrity"));
+		when(highFollowerAuthorService.isHighFollowerAuthor("celebrity")).thenReturn(true);
+
+		timelineRebuildService.rebuildTimeline("u");
+
+		verify(timelineRepository).deleteByUserIdAndTweetOwnerIdNotIn("u", List.of("a"));
+		verify(tweetClient, never()).getPublicTweets(eq("celebrity"), anyInt(), anyInt(), anyString());
+	}
+
+	// One indexed seek per owner, each starting above the previous one, until the page is full or owners run out
+	@Test
+	void findUserIdsAfterSeeksPastEachOwner() {
+		MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+		when(mongoTemplate.findOne(any(Query.class), eq(TimelineEntry.class)))
+				.thenReturn(TimelineEntry.builder().userId("b").build())
+				.thenReturn(TimelineEntry.builder().userId("c").build())
+				.thenReturn(null);
+
+		List<String> userIds = new TimelineRepositoryCustomImpl(mongoTemplate).findUserIdsAfter("a", 5);
+
+		assertThat(userIds).containsExactly("b", "c");
+		ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate, times(3)).findOne(queries.capture(), eq(TimelineEntry.class));
+		assertThat(queries.getAllValues()).extracting(query -> query.getQueryObject().get("userId").toString())
+				.containsExactly("Document{{$gt=a}}", "Document{{$gt=b}}", "Document{{$gt=c}}");
+		assertThat(queries.getValue().getLimit()).isEqualTo(1);
+	}
+
+	private static FeignApiResponse<PageResponse<List<FollowResponse>>> page(long totalElements, int totalPages,
+			String... followedIds) {
+		List<FollowResponse> contents = Arrays.stream(followedIds)
+				.map(followedId -> new FollowResponse(followedId, "u", followedId, 0L))
+				.toList();
+		return response(PageResponse.<List<FollowResponse>>builder()
+				.totalElements(totalElements)
+				.totalPages(totalPages)
+				.contents(contents)
+				.build());
+	}
+
+	private static <T> FeignApiResponse<T> response(T result) {
+		FeignApiResponse<T> response = new FeignApiResponse<>();
+		response.setResult(result);
+		return response;
+	}
+}
@@ -0,0 +1,110 @@
+package com.david.timeline_service.service;
+
+import com.david.timeline_service.entity.TimelineEntry;
+import com.david.timeline_service.exception.TimelineServiceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimelineServiceTests {
+
+	@Test
+	void mergeByTweetAtInterleavesSourcesNewestFirst() {
+		List<TimelineEntry> pushed = List.of(entry("t5", 500), entry("t3", 300), entry("t1", 100));
+		List<TimelineEntry> pulled = List.of(entry("t4", 400), entry("t2", 200));
+
+		List<TimelineEntry> merged = TimelineService.mergeByTweetAt(List.of(pushed, pulled), 0, 10);
+
+		assertThat(merged).extracting(TimelineEntry::getTweetId).containsExactly("t5", "t4", "t3", "t2", "t1");
+	}
+
+	@Test
+	void mergeByTweetAtBreaksTiesByTweetIdDescending() {
+		List<TimelineEntry> first = List.of(entry("a", 100));
+		List<TimelineEntry> second = List.of(entry("b", 100));
+
+		List<TimelineEntry> merged = TimelineService.mergeByTweetAt(List.of(first, second), 0, 10);
+
+		assertThat(merged).extracting(TimelineEntry::getTweetId).containsExactly("b", "a");
+	}
+
+	@Test
+	void mergeByTweetAtDropsDuplicatesBeforeSkipping() {
+		List<TimelineEntry> pushed = List.of(entry("t3", 300), entry("t2", 200), entry("t1", 100));
+		List<TimelineEntry> pulled = List.of(entry("t3", 300), entry("t2", 200));
+
+		List<TimelineEntry> merged = TimelineService.mergeByTweetAt(List.of(pushed, pulled), 1, 2);
+
+		assertThat(merged).extracting(TimelineEntry::getTweetId).containsExactly("t2", "t1");
+	}
+
+	@Test
+	void mergeByTweetAtStopsAtLimitAndIgnoresEmptySources() {
+		List<TimelineEntry> pushed = List.of(entry("t3", 300), entry("t2", 200), entry("t1", 100));
+
+		List<TimelineEntry> merged = TimelineService.mergeByTweetAt(List.of(List.of(), pushed, List.of()), 0, 2);
+
+		assertThat(merged).extracting(TimelineEntry::getTweetId).containsExactly("t3", "t2");
+	}
+
+	@Test
+	void mergeByTweetAtReturnsNothingPastTheEnd() {
+		List<TimelineEntry> pushed = List.of(entry("t2", 200), entry("t1", 100));
+
+		assertThat(TimelineService.mergeByTweetAt(List.of(pushed), 5, 2)).isEmpty();
+	}
+
+	@Test
+	void cursorRoundTripsTweetAtAndTweetId() {
+		TimelineEntry decoded = TimelineService.decodeCursor(TimelineService.encodeCursor(entry("6650f1:a", 1717000000000L)));
+
+		assertThat(decoded.getTweetAt()).isEqualTo(1717000000000L);
+		assertThat(decoded.getTweetId()).isEqualTo("6650f1:a");
+	}
+
+	@Test
+	void cursorIsUrlSafe() {
+		String cursor = TimelineService.encodeCursor(entry("??>>~~", 1717000000000L));
+
+		assertThat(cursor).matches("[A-Za-z0-9_-]+");
+	}
+
+	@Test
+	void blankCursorStartsFromTheNewestEntry() {
+		assertThat(TimelineService.decodeCursor(null)).isNull();
+		assertThat(TimelineService.decodeCursor(" ")).isNull();
+	}
+
+	@Test
+	void malformedCursorIsRejected() {
+		assertThatThrownBy(() -> TimelineService.decodeCursor("not base64!"))
+				.isInstanceOf(TimelineServiceException.class);
+		assertThatThrownBy(() -> TimelineService.decodeCursor("bm8tc2VwYXJhdG9y"))
+				.isInstanceOf(TimelineServiceException.class);
+		assertThatThrownBy(() -> TimelineService.decodeCursor("YWJjOnQx"))
+				.isInstanceOf(TimelineServiceException.class);
+	}
+
+	@Test
+	void isOlderOrdersByTweetAtThenTweetId() {
+		TimelineEntry before = entry("t5", 500);
+
+		assertThat(TimelineService.isOlder(entry("t9", 400), before)).isTrue();
+		assertThat(TimelineService.isOlder(entry("t4", 500), before)).isTrue();
+		assertThat(TimelineService.isOlder(entry("t5", 500), before)).isFalse();
+		assertThat(TimelineService.isOlder(entry("t6", 500), before)).isFalse();
+		assertThat(TimelineService.isOlder(entry("t1", 600), before)).isFalse();
+	}
+
+	private static TimelineEntry entry(String tweetId, long tweetAt) {
+		return TimelineEntry.builder()
+				.userId("reader")
+				.tweetId(tweetId)
+				.tweetOwnerId("owner")
+				.tweetAt(tweetAt)
+				.build();
+	}
+}
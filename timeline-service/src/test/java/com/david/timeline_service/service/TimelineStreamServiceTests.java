@@ -0,0 +1,72 @@
+package com.david.timeline_service.service;
+
+import com.david.timeline_service.dto.TimelineStreamBroadcast;
+import com.david.timeline_service.entity.TimelineEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TimelineStreamServiceTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private StringRedisTemplate stringRedisTemplate;
+	private TimelineStreamService timelineStreamService;
+
+	@BeforeEach
+	void setUp() {
+		stringRedisTemplate = mock(StringRedisTemplate.class);
+		timelineStreamService = new TimelineStreamService(stringRedisTemplate, objectMapper, new SimpleMeterRegistry(),
+				Duration.ofMinutes(30), Duration.ofSeconds(60), 3, 100, 1);
+	}
+
+	@AfterEach
+	void tearDown() {
+		timelineStreamService.shutdown();
+	}
+
+	@Test
+	void nothingIsBroadcastWhileNoStreamIsOpenAnywhere() {
+		timelineStreamService.publish(List.of(entry("u1", "t1")));
+
+		verifyNoInteractions(stringRedisTemplate);
+	}
+
+	// u1 opened a stream on another instance; u2 has none, so its entry stays off the channel
+	@Test
+	void entriesForUsersStreamingElsewhereAreBroadcast() throws Exception {
+		receive(TimelineStreamBroadcast.builder().origin("other-instance").streamUserId("u1").build());
+
+		timelineStreamService.publish(List.of(entry("u1", "t1"), entry("u2", "t2")));
+
+		ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+		verify(stringRedisTemplate).convertAndSend(eq(TimelineStreamService.BROADCAST_CHANNEL), body.capture());
+		TimelineStreamBroadcast broadcast = objectMapper.readValue(body.getValue(), TimelineStreamBroadcast.class);
+		assertThat(broadcast.getOrigin()).isNotEqualTo("other-instance");
+		assertThat(broadcast.getUpdates()).extracting(TimelineStreamBroadcast.Update::getTweetId).containsExactly("t1");
+	}
+
+	private void receive(TimelineStreamBroadcast broadcast) throws Exception {
+		timelineStreamService.onMessage(new DefaultMessage(TimelineStreamService.BROADCAST_CHANNEL.getBytes(),
+				objectMapper.writeValueAsBytes(broadcast)), null);
+	}
+
+	private static TimelineEntry entry(String userId, String tweetId) {
+		return TimelineEntry.builder()
+				.userId(userId)
+				.tweetId(tweetId)
+				.tweetOwnerId("author")
+				.tweetAt(1000L)
+				.build();
+	}
+}
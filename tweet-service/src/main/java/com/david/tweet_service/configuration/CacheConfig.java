@@ -1,5 +1,6 @@
 package com.david.tweet_service.configuration;
 
+import com.david.tweet_service.service.TweetCacheService;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
@@ -9,6 +10,9 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 
@@ -40,4 +44,13 @@ public class CacheConfig {
                                 .fromSerializer(jackson2JsonRedisSerializer)
                 );
     }
+
+    @Bean
+    public RedisMessageListenerContainer tweetCacheInvalidationListenerContainer(
+            RedisConnectionFactory redisConnectionFactory, TweetCacheService tweetCacheService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(tweetCacheService, new ChannelTopic(TweetCacheService.INVALIDATION_CHANNEL));
+        return container;
+    }
 }
@@ -0,0 +1,54 @@
+package com.david.tweet_service.configuration;
+
+import com.david.tweet_service.entity.OutboxEvent;
+import com.david.tweet_service.entity.Tweet;
+import com.david.tweet_service.entity.TweetLike;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+import java.time.Duration;
+
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexConfig {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.tweet.outbox.retention:7d}")
+    private Duration outboxRetention;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(TweetLike.class).ensureIndex(new Index()
+                .on("tweetId", Sort.Direction.ASC)
+                .on("userId", Sort.Direction.ASC)
+                .named("tweetId_userId"));
+        // Backs per-user listing as well as the exact recounts of tweet stats reconciliation
+        mongoTemplate.indexOps(Tweet.class).ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC)
+                .named("userId_createdAt"));
+        mongoTemplate.indexOps(OutboxEvent.class).ensureIndex(new Index()
+                .on("status", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.ASC)
+                .named("status_createdAt"));
+        mongoTemplate.indexOps(OutboxEvent.class).ensureIndex(new Index()
+                .on("claimToken", Sort.Direction.ASC)
+                .sparse()
+                .named("claimToken"));
+        // Published events are only kept for inspection
+        mongoTemplate.indexOps(OutboxEvent.class).ensureIndex(new Index()
+                .on("sentAt", Sort.Direction.ASC)
+                .expire(outboxRetention)
+                .named("sentAt_ttl"));
+        log.info("MongoIndexConfig::ensureIndexes - Tweet indexes ensured");
+    }
+}
@@ -1,7 +1,6 @@
 package com.david.tweet_service.configuration;
 
-import org.springframework.amqp.core.ExchangeBuilder;
-import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
@@ -15,6 +14,9 @@ public class RabbitMqConfig {
     @Value("${app.rabbitmq.exchange.tweet-events}")
     private String tweetEventsExchange;
 
+    @Value("${app.rabbitmq.routing-key.tweet-created}")
+    private String tweetCreatedRoutingKey;
+
     @Bean
     public TopicExchange tweetEventsExchange() {
         return ExchangeBuilder.topicExchange(tweetEventsExchange)
@@ -22,6 +24,19 @@ public class RabbitMqConfig {
                 .build();
     }
 
+    // Every instance ranks hashtags in memory, so each one needs the full stream of new tweets
+    @Bean
+    public Queue trendingHashtagsQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding trendingHashtagsBinding() {
+        return BindingBuilder.bind(trendingHashtagsQueue())
+                .to(tweetEventsExchange())
+                .with(tweetCreatedRoutingKey);
+    }
+
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, TopicExchange tweetEventsExchange) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
@@ -3,13 +3,16 @@ package com.david.tweet_service.controller;
 import com.david.common.dto.ApiResponse;
 import com.david.common.dto.tweet.TweetResponse;
 import com.david.tweet_service.dto.request.TweetRequest;
+import com.david.tweet_service.service.LikeCountReconciliationService;
+import com.david.tweet_service.service.TrendingHashtagService;
+import com.david.tweet_service.service.TweetLikeMigrationService;
 import com.david.tweet_service.service.TweetService;
+import com.david.tweet_service.service.UserTweetStatsService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -19,6 +22,10 @@ import java.util.List;
 public class TweetController {
 
     private final TweetService tweetService;
+    private final TweetLikeMigrationService tweetLikeMigrationService;
+    private final TrendingHashtagService trendingHashtagService;
+    private final UserTweetStatsService userTweetStatsService;
+    private final LikeCountReconciliationService likeCountReconciliationService;
 
     @GetMapping("/api/v1/tweets/{tweetId}")
     public ApiResponse<?> getTweetById(@PathVariable("tweetId") String tweetId) {
@@ -38,6 +45,16 @@ public class TweetController {
         return new ApiResponse<>(HttpStatus.OK, "Fetched tweets successfully", tweetResponses);
     }
 
+    @GetMapping("/api/v1/hashtags/trending")
+    public ApiResponse<?> getTrendingHashtags(
+            @RequestParam(name = "limit", defaultValue = "10") int limit
+    ) {
+        log.info("TweetController::getTrendingHashtags - Execution started");
+        var trendingHashtags = trendingHashtagService.getTrending(limit);
+        log.info("TweetController::getTrendingHashtags - Execution ended");
+        return new ApiResponse<>(HttpStatus.OK, "Fetched trending hashtags successfully", trendingHashtags);
+    }
+
     @GetMapping("/api/v1/tweets/me")
     public ApiResponse<?> getMyTweets(
             @RequestParam(name = "page", defaultValue = "1") int page,
@@ -63,13 +80,66 @@ public class TweetController {
         return new ApiResponse<>(HttpStatus.OK, "Fetched tweets successfully", tweetResponses);
     }
 
+    @GetMapping("/api/v1/users/{userId}/liked-tweets")
+    public ApiResponse<?> getLikedTweetIds(
+            @PathVariable(name = "userId") String userId,
+            @RequestParam(name = "ids") List<String> ids
+    ) {
+        log.info("TweetController::getLikedTweetIds - Execution started for userId: {}", userId);
+        var likedTweetIds = tweetService.getLikedTweetIds(userId, ids);
+        log.info("TweetController::getLikedTweetIds - Execution ended for userId: {}", userId);
+        return new ApiResponse<>(HttpStatus.OK, "Fetched liked tweets successfully", likedTweetIds);
+    }
+
+    @GetMapping("/api/v1/users/{userId}/tweet-stats")
+    public ApiResponse<?> getUserTweetStats(@PathVariable(name = "userId") String userId) {
+        log.info("TweetController::getUserTweetStats - Execution started for userId: {}", userId);
+        var userTweetStats = userTweetStatsService.getStats(userId);
+        log.info("TweetController::getUserTweetStats - Execution ended for userId: {}", userId);
+        return new ApiResponse<>(HttpStatus.OK, "Fetched tweet stats successfully", userTweetStats);
+    }
+
+    // Views that happen outside tweet-service, such as tweets hydrated into a timeline; the viewer is the caller
+    @PostMapping("/api/v1/tweets/impressions")
+    public ApiResponse<?> recordImpressions(@RequestBody List<String> tweetIds) {
+        log.info("TweetController::recordImpressions - Execution started for {} tweetIds", tweetIds.size());
+        tweetService.recordImpressions(tweetIds);
+        log.info("TweetController::recordImpressions - Execution ended");
+        return new ApiResponse<>(HttpStatus.ACCEPTED, "Recorded impressions successfully");
+    }
+
+    @PostMapping("/api/v1/tweets/admin/migrations/likes")
+    public ApiResponse<?> migrateEmbeddedLikes(
+            @RequestParam(name = "batchSize", defaultValue = "500") int batchSize
+    ) {
+        log.info("TweetController::migrateEmbeddedLikes - Execution started");
+        var migrationResponse = tweetLikeMigrationService.migrateEmbeddedLikes(batchSize);
+        log.info("TweetController::migrateEmbeddedLikes - Execution ended");
+        return new ApiResponse<>(HttpStatus.OK, "Migrated likes successfully", migrationResponse);
+    }
+
+    @PostMapping("/api/v1/tweets/admin/reconciliations/user-stats")
+    public ApiResponse<?> reconcileUserTweetStats() {
+        log.info("TweetController::reconcileUserTweetStats - Execution started");
+        var reconciliationResponse = userTweetStatsService.reconcileNow();
+        log.info("TweetController::reconcileUserTweetStats - Execution ended");
+        return new ApiResponse<>(HttpStatus.OK, "Reconciled user tweet stats successfully", reconciliationResponse);
+    }
+
+    @PostMapping("/api/v1/tweets/admin/reconciliations/likes")
+    public ApiResponse<?> reconcileLikeCounts() {
+        log.info("TweetController::reconcileLikeCounts - Execution started");
+        var reconciliationResponse = likeCountReconciliationService.reconcileNow();
+        log.info("TweetController::reconcileLikeCounts - Execution ended");
+        return new ApiResponse<>(HttpStatus.OK, "Reconciled like counts successfully", reconciliationResponse);
+    }
+
     @PostMapping("/api/v1/tweets")
     public ApiResponse<?> createTweet(
-            @Valid @RequestPart("tweetData") TweetRequest request,
-            @RequestPart(value = "mediaFiles", required = false) MultipartFile[] mediaFiles
+            @Valid @RequestBody TweetRequest request
     ) {
         log.info("TweetController::createTweet - Execution started");
-        TweetResponse tweetResponse = tweetService.createTweet(request, mediaFiles);
+        TweetResponse tweetResponse = tweetService.createTweet(request);
         log.info("TweetController::createTweet - Execution ended");
         return new ApiResponse<>(HttpStatus.CREATED, "Created tweet successfully", tweetResponse);
     }
@@ -78,18 +148,18 @@ public class TweetController {
     public ApiResponse<?> likeTweet(
             @PathVariable("tweetId") String tweetId) {
         log.info("TweetController::likeTweet - Execution started for tweetId: {}", tweetId);
-        TweetResponse tweetResponse = tweetService.likeTweet(tweetId);
+        var likeResponse = tweetService.likeTweet(tweetId);
         log.info("TweetController::likeTweet - Execution ended for tweetId: {}", tweetId);
-        return new ApiResponse<>(HttpStatus.OK, "Like tweet successfully", tweetResponse);
+        return new ApiResponse<>(HttpStatus.OK, "Like tweet successfully", likeResponse);
     }
 
     @DeleteMapping("/api/v1/tweets/{tweetId}/likes")
     public ApiResponse<?> unlikeTweet(
             @PathVariable("tweetId") String tweetId) {
         log.info("TweetController::unlikeTweet - Execution started for tweetId: {}", tweetId);
-        TweetResponse tweetResponse = tweetService.unlikeTweet(tweetId);
+        var likeResponse = tweetService.unlikeTweet(tweetId);
         log.info("TweetController::unlikeTweet - Execution ended for tweetId: {}", tweetId);
-        return new ApiResponse<>(HttpStatus.OK, "Unlike tweet successfully", tweetResponse);
+        return new ApiResponse<>(HttpStatus.OK, "Unlike tweet successfully", likeResponse);
     }
 
     @DeleteMapping("/api/v1/tweets/{tweetId}")
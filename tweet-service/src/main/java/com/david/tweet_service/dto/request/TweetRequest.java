@@ -2,6 +2,7 @@ package com.david.tweet_service.dto.request;
 
 import com.david.common.enums.Visibility;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.*;
 
 import java.util.List;
@@ -17,6 +18,10 @@ public class TweetRequest {
 
     private List<String> hashtags;
 
+    // Ids returned by media-service when the files were uploaded there
+    @Size(max = 4)
+    private List<String> mediaIds;
+
     @NotNull
     private Visibility visibility;
 }
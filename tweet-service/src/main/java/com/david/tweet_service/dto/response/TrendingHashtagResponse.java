@@ -0,0 +1,16 @@
+package com.david.tweet_service.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrendingHashtagResponse {
+
+    private String hashtag;
+
+    // Estimated tweets in the trending window; may overcount, never undercounts
+    private long count;
+}
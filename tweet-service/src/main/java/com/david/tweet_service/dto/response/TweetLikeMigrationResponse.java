@@ -0,0 +1,17 @@
+package com.david.tweet_service.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TweetLikeMigrationResponse {
+
+    private long migratedTweets;
+
+    private long migratedLikes;
+
+    private long durationMs;
+}
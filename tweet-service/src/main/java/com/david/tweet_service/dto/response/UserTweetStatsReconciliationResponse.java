@@ -0,0 +1,17 @@
+package com.david.tweet_service.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserTweetStatsReconciliationResponse {
+
+    private long checkedUsers;
+
+    private long fixedUsers;
+
+    private long durationMs;
+}
@@ -0,0 +1,15 @@
+package com.david.tweet_service.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserTweetStatsResponse {
+
+    private String userId;
+
+    private long tweetsCount;
+}
@@ -0,0 +1,35 @@
+package com.david.tweet_service.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+@Document(collection = "hashtag_bucket_snapshots")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HashtagBucketSnapshot {
+
+    // Start of the bucket in epoch millis
+    @Id
+    private long bucketStart;
+
+    // Snapshots written before hashing was versioned read as 0
+    private int hashVersion;
+
+    private int depth;
+
+    private int width;
+
+    // depth rows of width counters, row after row
+    private long[] sketch;
+
+    // Parallel lists rather than a map, since hashtags are not safe Mongo field names
+    private List<String> hashtags;
+
+    private List<Long> counts;
+}
@@ -0,0 +1,49 @@
+package com.david.tweet_service.entity;
+
+import com.david.common.dto.ApiEventMessage;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Document(collection = "outbox")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    private String id;
+
+    private String routingKey;
+
+    // What the relay checks to decide whether the write of an abandoned PREPARED event happened
+    private String aggregateId;
+
+    private ApiEventMessage<Object> message;
+
+    private Status status;
+
+    private String claimToken;
+
+    private long claimedUntil;
+
+    private int attempts;
+
+    private long createdAt;
+
+    // A Date so the TTL index can purge published events
+    private Date sentAt;
+
+    public enum Status {
+        // Written before the change it describes; never published until committed or verified
+        PREPARED,
+        PENDING,
+        SENT,
+        // Failed to publish on every attempt; parked for inspection instead of holding up the relay
+        FAILED
+    }
+}
@@ -34,11 +34,12 @@ public class Tweet {
     @Builder.Default
     private Stats stats = new Stats();
 
-    @Builder.Default
-    private List<String> likedBy = new ArrayList<>();
-
     private Visibility visibility;
 
+    // Sequence number of the last write-behind like batch folded into stats.likesCount. Batches are applied in
+    // sequence order, so every batch up to this one is counted
+    private Long lastAppliedLikeBatch;
+
     @CreatedDate
     private long createdAt;
 
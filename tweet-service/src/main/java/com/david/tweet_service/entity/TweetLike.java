@@ -0,0 +1,30 @@
+package com.david.tweet_service.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document(collection = "tweet_likes")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TweetLike {
+
+    // tweetId:userId, so a repeated like is a duplicate key and "did this user like these tweets" is an _id lookup
+    @Id
+    private String id;
+
+    private String tweetId;
+
+    private String userId;
+
+    @CreatedDate
+    private long createdAt;
+
+    public static String idOf(String tweetId, String userId) {
+        return tweetId + ":" + userId;
+    }
+}
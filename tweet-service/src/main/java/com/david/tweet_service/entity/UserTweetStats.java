@@ -0,0 +1,21 @@
+package com.david.tweet_service.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document(collection = "user_tweet_stats")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserTweetStats {
+
+    @Id
+    private String userId;
+
+    private long tweetsCount;
+
+    private long updatedAt;
+}
@@ -0,0 +1,31 @@
+package com.david.tweet_service.listener;
+
+import com.david.common.dto.ApiEventMessage;
+import com.david.common.dto.tweet.TweetCreatedEventPayload;
+import com.david.tweet_service.service.TrendingHashtagService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TrendingHashtagListener {
+
+    private final TrendingHashtagService trendingHashtagService;
+
+    @RabbitListener(queues = "#{trendingHashtagsQueue.name}")
+    public void handleNewTweetEvent(@Payload ApiEventMessage<TweetCreatedEventPayload> message) {
+        try {
+            if ("TWEET_CREATED".equals(message.getEventType()) && message.getPayload() != null) {
+                TweetCreatedEventPayload payload = message.getPayload();
+                trendingHashtagService.record(payload.getHashtags(),
+                        payload.getCreatedAt() > 0 ? payload.getCreatedAt() : System.currentTimeMillis());
+            }
+        } catch (Exception e) {
+            log.error("Error processing new tweet event for hashtags: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -4,9 +4,11 @@ import com.david.common.dto.tweet.TweetResponse;
 import com.david.tweet_service.dto.request.TweetRequest;
 import com.david.tweet_service.entity.Tweet;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring", uses = {MediaMapper.class})
 public interface TweetMapper {
+    @Mapping(target = "statsResponse", source = "stats")
     TweetResponse toDto(Tweet tweet);
     Tweet toEntity(TweetRequest tweetRequest);
 }
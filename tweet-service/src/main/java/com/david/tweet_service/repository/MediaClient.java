@@ -3,19 +3,16 @@ package com.david.tweet_service.repository;
 import com.david.common.dto.FeignApiResponse;
 import com.david.common.dto.media.MediaResponse;
 import org.springframework.cloud.openfeign.FeignClient;
-import org.springframework.http.MediaType;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestPart;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
 @FeignClient(name = "media-service", url = "${app.services.media-service.url}")
 public interface MediaClient {
 
-    @PostMapping(value = "/api/v1/media", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    FeignApiResponse<List<MediaResponse>> uploadFiles(
-            @RequestPart("files") MultipartFile[] files,
-            @RequestPart("type") String type
+    @GetMapping("/api/v1/media")
+    FeignApiResponse<List<MediaResponse>> getMedia(
+            @RequestParam("ids") List<String> ids
     );
 }
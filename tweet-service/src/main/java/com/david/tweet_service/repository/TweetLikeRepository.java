@@ -0,0 +1,17 @@
+package com.david.tweet_service.repository;
+
+import com.david.tweet_service.entity.TweetLike;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TweetLikeRepository extends MongoRepository<TweetLike, String> {
+
+    long countByTweetId(String tweetId);
+
+    boolean existsByTweetId(String tweetId);
+
+    long deleteByTweetIdAndUserId(String tweetId, String userId);
+
+    void deleteAllByTweetId(String tweetId);
+}
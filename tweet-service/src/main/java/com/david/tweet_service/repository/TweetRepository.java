@@ -4,24 +4,28 @@ import com.david.common.enums.Visibility;
 import com.david.tweet_service.entity.Tweet;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
-public interface TweetRepository extends MongoRepository<Tweet, String> {
+public interface TweetRepository extends MongoRepository<Tweet, String>, TweetRepositoryCustom {
 
     Optional<Tweet> findByUserId(String tweetId);
 
     Optional<Tweet> findByIdAndVisibility(String tweetId, Visibility visibility);
 
-    Page<Tweet> findAllByUserId(String userId, Pageable pageable);
+    // Slices, so listing a user's tweets never runs a count query; the count lives in UserTweetStats
+    Slice<Tweet> findAllByUserId(String userId, Pageable pageable);
 
-    Page<Tweet> findAllByUserIdAndVisibility(String userId, Visibility visibility, Pageable pageable);
+    Slice<Tweet> findAllByUserIdAndVisibility(String userId, Visibility visibility, Pageable pageable);
 
     long countByUserId(String userId);
 
+    boolean existsByUserId(String userId);
+
     Page<Tweet> findAllByContentContaining(String keyword, Pageable pageable);
 
     Page<Tweet> findAllByHashtagsContaining(String hashtag, Pageable pageable);
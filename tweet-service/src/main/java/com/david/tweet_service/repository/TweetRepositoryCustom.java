@@ -0,0 +1,23 @@
+package com.david.tweet_service.repository;
+
+import com.david.tweet_service.entity.Tweet;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface TweetRepositoryCustom {
+
+    boolean incrementLikesCount(String tweetId, long delta);
+
+    List<Tweet> findCacheableByIds(Collection<String> tweetIds);
+
+    Optional<Tweet> findLikesCountById(String tweetId);
+
+    void applyLikeCountBatch(long batchSeq, Map<String, Long> deltas);
+
+    void applyLegacyLikeCountBatch(String batchId, Map<String, Long> deltas);
+
+    boolean replaceLikesCount(String tweetId, long expectedCount, long likesCount);
+}
@@ -0,0 +1,91 @@
+package com.david.tweet_service.repository;
+
+import com.david.tweet_service.entity.Tweet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class TweetRepositoryCustomImpl implements TweetRepositoryCustom {
+
+    // Batch ids a tweet remembers under the pre-sequence scheme; only needs to outlast a retried flush
+    private static final int APPLIED_LIKE_BATCHES_KEPT = 32;
+
+    private final MongoTemplate mongoTemplate;
+
+    // A plain update, so nothing of the document travels back; false means the tweet does not exist
+    @Override
+    public boolean incrementLikesCount(String tweetId, long delta) {
+        Update update = new Update()
+                .inc("stats.likesCount", delta)
+                .set("updatedAt", System.currentTimeMillis());
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(tweetId)), update, Tweet.class)
+                .getMatchedCount() > 0;
+    }
+
+    // Only the fields a tweet response is built from, so anything added to the document later stays off the hot path
+    @Override
+    public List<Tweet> findCacheableByIds(Collection<String> tweetIds) {
+        Query query = Query.query(Criteria.where("_id").in(tweetIds));
+        query.fields()
+                .include("userId", "content", "mediaItems", "hashtags", "stats", "visibility", "createdAt", "updatedAt",
+                        "lastAppliedLikeBatch");
+        return mongoTemplate.find(query, Tweet.class);
+    }
+
+    @Override
+    public Optional<Tweet> findLikesCountById(String tweetId) {
+        Query query = Query.query(Criteria.where("_id").is(tweetId));
+        query.fields().include("stats", "lastAppliedLikeBatch");
+        return Optional.ofNullable(mongoTemplate.findOne(query, Tweet.class));
+    }
+
+    // Batches are applied in sequence order, so a tweet that has reached this batch or a later one already counts it
+    // and a retried batch is a no-op there. $not also matches tweets that never had a batch applied
+    @Override
+    public void applyLikeCountBatch(long batchSeq, Map<String, Long> deltas) {
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tweet.class);
+        long now = System.currentTimeMillis();
+        deltas.forEach((tweetId, delta) -> bulkOperations.updateOne(
+                Query.query(Criteria.where("_id").is(tweetId).and("lastAppliedLikeBatch").not().gte(batchSeq)),
+                new Update()
+                        .inc("stats.likesCount", delta)
+                        .set("lastAppliedLikeBatch", batchSeq)
+                        .set("updatedAt", now)));
+        bulkOperations.execute();
+    }
+
+    // Batches rotated by instances that predate sequence numbers carry a random id, guarded by the id list instead;
+    // this can go once none of them are left
+    @Override
+    public void applyLegacyLikeCountBatch(String batchId, Map<String, Long> deltas) {
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tweet.class);
+        long now = System.currentTimeMillis();
+        deltas.forEach((tweetId, delta) -> bulkOperations.updateOne(
+                Query.query(Criteria.where("_id").is(tweetId).and("appliedLikeBatches").ne(batchId)),
+                new Update()
+                        .inc("stats.likesCount", delta)
+                        .set("updatedAt", now)
+                        .push("appliedLikeBatches").slice(-APPLIED_LIKE_BATCHES_KEPT).each(batchId)));
+        bulkOperations.execute();
+    }
+
+    // Compare-and-set: a batch applied or a direct increment racing with the recount changes the count, so the
+    // recount is never written over it
+    @Override
+    public boolean replaceLikesCount(String tweetId, long expectedCount, long likesCount) {
+        Update update = new Update()
+                .set("stats.likesCount", likesCount)
+                .set("updatedAt", System.currentTimeMillis());
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(tweetId).and("stats.likesCount").is(expectedCount)),
+                update, Tweet.class).getModifiedCount() > 0;
+    }
+}
@@ -0,0 +1,9 @@
+package com.david.tweet_service.repository;
+
+import com.david.tweet_service.entity.UserTweetStats;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserTweetStatsRepository extends MongoRepository<UserTweetStats, String>, UserTweetStatsRepositoryCustom {
+}
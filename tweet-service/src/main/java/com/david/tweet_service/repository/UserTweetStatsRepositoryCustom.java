@@ -0,0 +1,8 @@
+package com.david.tweet_service.repository;
+
+public interface UserTweetStatsRepositoryCustom {
+
+    boolean incrementTweetsCount(String userId, long delta);
+
+    boolean replaceTweetsCount(String userId, Long expectedCount, long tweetsCount);
+}
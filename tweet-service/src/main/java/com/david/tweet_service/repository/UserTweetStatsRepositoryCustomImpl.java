@@ -0,0 +1,47 @@
+package com.david.tweet_service.repository;
+
+import com.david.tweet_service.entity.UserTweetStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@RequiredArgsConstructor
+public class UserTweetStatsRepositoryCustomImpl implements UserTweetStatsRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    // Never upserts: a missing document has to be seeded from an exact count, since the user may have tweets
+    // from before the stats existed. Returns false when there is no document
+    @Override
+    public boolean incrementTweetsCount(String userId, long delta) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(userId)), new Update()
+                .inc("tweetsCount", delta)
+                .set("updatedAt", System.currentTimeMillis()), UserTweetStats.class).getMatchedCount() > 0;
+    }
+
+    // Compare-and-set: only applies if the count is still expectedCount (null meaning no document yet),
+    // so a create or delete racing with the recount is never overwritten
+    @Override
+    public boolean replaceTweetsCount(String userId, Long expectedCount, long tweetsCount) {
+        if (expectedCount == null) {
+            try {
+                mongoTemplate.insert(UserTweetStats.builder()
+                        .userId(userId)
+                        .tweetsCount(tweetsCount)
+                        .updatedAt(System.currentTimeMillis())
+                        .build());
+                return true;
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+        }
+        Update update = new Update()
+                .set("tweetsCount", tweetsCount)
+                .set("updatedAt", System.currentTimeMillis());
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(userId).and("tweetsCount").is(expectedCount)),
+                update, UserTweetStats.class).getModifiedCount() > 0;
+    }
+}
@@ -0,0 +1,205 @@
+package com.david.tweet_service.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Views go into a fixed-size HyperLogLog per tweet in memory and are merged into Redis on a schedule, so a view
+// costs no write anywhere on the read path. Redis keeps the merged registers and a hash of current estimates;
+// reads only touch the hash.
+@Service
+@Slf4j
+public class ImpressionService {
+
+    private static final String SKETCH_KEY_PREFIX = "tweet:views:hll:";
+    private static final String COUNTS_KEY = "tweet:views:counts";
+    private static final int PRECISION = 10;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final int FLUSH_CHUNK = 50;
+
+    // Max-merges each incoming sketch into the stored one and records the new estimate
+    private static final RedisScript<Long> MERGE_SCRIPT = new DefaultRedisScript<>("""
+            local m = tonumber(ARGV[1])
+            local ttl = tonumber(ARGV[2])
+            for i = 3, #ARGV, 2 do
+                local key = '%s' .. ARGV[i]
+                local incoming = ARGV[i + 1]
+                local existing = redis.call('GET', key)
+                local merged = {}
+                local sum, zeros = 0, 0
+                for j = 1, m do
+                    local r = string.byte(incoming, j)
+                    if existing then
+                        local e = string.byte(existing, j)
+                        if e > r then r = e end
+                    end
+                    merged[j] = string.char(r)
+                    sum = sum + 2 ^ (-r)
+                    if r == 0 then zeros = zeros + 1 end
+                end
+                redis.call('SET', key, table.concat(merged), 'EX', ttl)
+                local estimate = (0.7213 / (1 + 1.079 / m)) * m * m / sum
+                if estimate <= 2.5 * m and zeros > 0 then
+                    estimate = m * math.log(m / zeros)
+                end
+                redis.call('HSET', KEYS[1], ARGV[i], math.floor(estimate + 0.5))
+            end
+            return 1
+            """.formatted(SKETCH_KEY_PREFIX), Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Sketch> pending = new ConcurrentHashMap<>();
+    private final int maxTrackedTweets;
+    private final Duration sketchTtl;
+
+    public ImpressionService(
+            StringRedisTemplate stringRedisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.tweet.impressions.max-tracked-tweets:20000}") int maxTrackedTweets,
+            @Value("${app.tweet.impressions.sketch-ttl:30d}") Duration sketchTtl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxTrackedTweets = maxTrackedTweets;
+        this.sketchTtl = sketchTtl;
+        Gauge.builder("tweet.impressions.tracked", pending, Map::size).register(meterRegistry);
+    }
+
+    // Memory is capped at maxTrackedTweets sketches of REGISTERS bytes; until the next flush frees them, views of
+    // tweets beyond the cap are dropped and counted in tweet.impressions.dropped
+    public void record(String viewerId, Collection<String> tweetIds) {
+        if (viewerId == null) {
+            return;
+        }
+        long hash = hash(viewerId);
+        for (String tweetId : tweetIds) {
+            Sketch sketch = pending.get(tweetId);
+            if (sketch == null) {
+                if (pending.size() >= maxTrackedTweets) {
+                    meterRegistry.counter("tweet.impressions.dropped").increment();
+                    continue;
+                }
+                sketch = pending.computeIfAbsent(tweetId, id -> new Sketch());
+            }
+            sketch.add(hash);
+        }
+    }
+
+    public Map<String, Long> uniqueViewers(List<String> tweetIds) {
+        if (tweetIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Long> counts = new HashMap<>();
+        try {
+            List<Object> values = stringRedisTemplate.opsForHash().multiGet(COUNTS_KEY, new ArrayList<>(tweetIds));
+            for (int i = 0; i < tweetIds.size(); i++) {
+                if (values.get(i) != null) {
+                    counts.put(tweetIds.get(i), Long.parseLong(values.get(i).toString()));
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("ImpressionService::uniqueViewers - Failed to read view counts for {} tweets. Error: {}",
+                    tweetIds.size(), e.getMessage());
+        }
+        return counts;
+    }
+
+    public void forget(String tweetId) {
+        pending.remove(tweetId);
+        try {
+            stringRedisTemplate.delete(SKETCH_KEY_PREFIX + tweetId);
+            stringRedisTemplate.opsForHash().delete(COUNTS_KEY, tweetId);
+        } catch (DataAccessException e) {
+            log.warn("ImpressionService::forget - Failed to remove views of tweetId: {}. Error: {}", tweetId, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.tweet.impressions.flush-interval-ms:10000}")
+    public void flush() {
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(REGISTERS));
+        args.add(String.valueOf(sketchTtl.toSeconds()));
+        int flushed = 0;
+        for (String tweetId : List.copyOf(pending.keySet())) {
+            Sketch sketch = pending.remove(tweetId);
+            if (sketch == null) {
+                continue;
+            }
+            args.add(tweetId);
+            args.add(sketch.encode());
+            if (args.size() == 2 + FLUSH_CHUNK * 2) {
+                flushed += merge(args);
+                args.subList(2, args.size()).clear();
+            }
+        }
+        if (args.size() > 2) {
+            flushed += merge(args);
+        }
+        if (flushed > 0) {
+            log.info("ImpressionService::flush - Merged view sketches of {} tweets", flushed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private int merge(List<String> args) {
+        try {
+            stringRedisTemplate.execute(MERGE_SCRIPT, List.of(COUNTS_KEY), args.toArray());
+            return (args.size() - 2) / 2;
+        } catch (DataAccessException e) {
+            // Views are approximate by design; a failed flush loses that interval rather than piling up memory
+            log.warn("ImpressionService::merge - Failed to merge {} view sketches. Error: {}", (args.size() - 2) / 2, e.getMessage());
+            meterRegistry.counter("tweet.impressions.flush.failures").increment();
+            return 0;
+        }
+    }
+
+    // FNV-1a followed by the murmur3 finalizer, for well-spread bits from short ids
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Sketch {
+
+        private final byte[] registers = new byte[REGISTERS];
+
+        private synchronized void add(long hash) {
+            int index = (int) (hash >>> (64 - PRECISION));
+            byte rank = (byte) Math.min(Long.numberOfLeadingZeros(hash << PRECISION) + 1, 64 - PRECISION + 1);
+            if (rank > registers[index]) {
+                registers[index] = rank;
+            }
+        }
+
+        // Register values stay below 128, so every byte survives the trip through a UTF-8 string argument
+        private synchronized String encode() {
+            return new String(registers, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
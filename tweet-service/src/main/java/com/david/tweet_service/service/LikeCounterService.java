@@ -0,0 +1,300 @@
+package com.david.tweet_service.service;
+
+import com.david.tweet_service.entity.Tweet;
+import com.david.tweet_service.repository.TweetRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Likes on a hot tweet all land on one document; deltas are accumulated in a Redis hash instead and
+// folded into Mongo as one $inc per tweet per flush. Redis holds every delta from the moment the like
+// is acknowledged, so a crashed instance leaves nothing behind that another instance cannot flush.
+@Service
+@Slf4j
+public class LikeCounterService {
+
+    private static final String PENDING_KEY = "tweet:likes:pending";
+    private static final String BATCH_KEY_PREFIX = "tweet:likes:batch:";
+    private static final String UNAPPLIED_BATCHES_KEY = "tweet:likes:batches:unapplied";
+    private static final String APPLIED_BATCHES_KEY = "tweet:likes:batches:applied";
+    private static final String BATCH_SEQ_KEY = "tweet:likes:batches:seq";
+
+    private static final String OP_KEY_PREFIX = "tweet:likes:op:";
+    private static final Duration OP_TTL = Duration.ofHours(1);
+    private static final int RECORD_ATTEMPTS = 2;
+    private static final int MAX_BACKGROUND_RETRIES = 10;
+
+    // Adds a delta at most once per op id, so an attempt whose reply was lost can be repeated without counting twice
+    private static final RedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('SET', KEYS[2], '1', 'NX', 'EX', ARGV[3]) then
+                redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    // Moves the live deltas aside under the next batch sequence number in one step, so increments arriving
+    // mid-flush go to a fresh hash. The batch is listed as unapplied in the same step, scored by its sequence number
+    private static final RedisScript<Long> ROTATE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            local seq = redis.call('INCR', KEYS[2])
+            redis.call('RENAME', KEYS[1], '%s' .. seq)
+            redis.call('ZADD', KEYS[3], seq, seq)
+            return seq
+            """.formatted(BATCH_KEY_PREFIX), Long.class);
+
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            redis.call('ZADD', KEYS[2], ARGV[2], ARGV[1])
+            redis.call('PEXPIRE', KEYS[3], ARGV[3])
+            return 1
+            """, Long.class);
+
+    // Returns the live deltas, then a batch id and its deltas for every batch still readable
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SNAPSHOT_SCRIPT = new DefaultRedisScript<>("""
+            local result = { redis.call('HMGET', KEYS[1], unpack(ARGV)) }
+            local batchIds = redis.call('ZRANGE', KEYS[2], 0, -1)
+            for _, batchId in ipairs(redis.call('ZRANGE', KEYS[3], 0, -1)) do
+                table.insert(batchIds, batchId)
+            end
+            for _, batchId in ipairs(batchIds) do
+                table.insert(result, batchId)
+                table.insert(result, redis.call('HMGET', '%s' .. batchId, unpack(ARGV)))
+            end
+            return result
+            """.formatted(BATCH_KEY_PREFIX), List.class);
+
+    private final TweetRepository tweetRepository;
+    private final TweetCacheService tweetCacheService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long flushThreshold;
+    private final Duration appliedGrace;
+    private final LongAdder unflushed = new LongAdder();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    public LikeCounterService(
+            TweetRepository tweetRepository,
+            TweetCacheService tweetCacheService,
+            StringRedisTemplate stringRedisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.tweet.like-counter.write-behind.enabled:true}") boolean enabled,
+            @Value("${app.tweet.like-counter.flush-threshold:1000}") long flushThreshold,
+            @Value("${app.tweet.like-counter.applied-grace:5s}") Duration appliedGrace) {
+        this.tweetRepository = tweetRepository;
+        this.tweetCacheService = tweetCacheService;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.flushThreshold = flushThreshold;
+        this.appliedGrace = appliedGrace;
+    }
+
+    // A like is never acknowledged without being counted, and never counted twice. A direct $inc is only safe when
+    // no attempt can have reached Redis, i.e. every one failed to connect. After an attempt that may have landed,
+    // such as a timeout, the same op id is retried in the background until Redis confirms it either way.
+    public void record(String tweetId, long delta) {
+        if (!enabled) {
+            applyDirectly(tweetId, delta);
+            return;
+        }
+        String opId = UUID.randomUUID().toString();
+        boolean maybeSent = false;
+        for (int attempt = 1; attempt <= RECORD_ATTEMPTS; attempt++) {
+            try {
+                buffer(tweetId, delta, opId);
+                return;
+            } catch (RedisConnectionFailureException e) {
+                log.warn("LikeCounterService::record - Could not reach Redis for tweetId: {}. Error: {}", tweetId, e.getMessage());
+            } catch (DataAccessException e) {
+                maybeSent = true;
+                log.warn("LikeCounterService::record - Unconfirmed like delta for tweetId: {}. Error: {}", tweetId, e.getMessage());
+            }
+        }
+        if (maybeSent) {
+            scheduleRetry(tweetId, delta, opId, 1);
+        } else {
+            applyDirectly(tweetId, delta);
+        }
+    }
+
+    // Deltas not yet in the stored count, per tweet; none if Redis cannot be read
+    public Map<String, Long> pendingDeltas(Collection<Tweet> tweets) {
+        try {
+            return readPendingDeltas(tweets);
+        } catch (DataAccessException e) {
+            log.warn("LikeCounterService::pendingDeltas - Failed to read pending deltas for {} tweets. Error: {}",
+                    tweets.size(), e.getMessage());
+            return Map.of();
+        }
+    }
+
+    // Redis is read in one script so a concurrent rotation cannot show a delta twice or not at all; a batch at or
+    // below the fetched document's last applied batch is skipped for that tweet. Throws if Redis cannot be read,
+    // for callers that must not mistake that for "nothing pending"
+    @SuppressWarnings("unchecked")
+    public Map<String, Long> readPendingDeltas(Collection<Tweet> tweets) {
+        if (!enabled || tweets.isEmpty()) {
+            return Map.of();
+        }
+        List<Tweet> tweetList = List.copyOf(tweets);
+        Map<String, Long> pending = new HashMap<>();
+        List<Object> snapshot = stringRedisTemplate.execute(SNAPSHOT_SCRIPT,
+                List.of(PENDING_KEY, UNAPPLIED_BATCHES_KEY, APPLIED_BATCHES_KEY),
+                tweetList.stream().map(Tweet::getId).toArray());
+        if (snapshot == null || snapshot.isEmpty()) {
+            return Map.of();
+        }
+        addDeltas(pending, (List<Object>) snapshot.get(0), tweetList, null);
+        for (int i = 1; i + 1 < snapshot.size(); i += 2) {
+            addDeltas(pending, (List<Object>) snapshot.get(i + 1), tweetList, String.valueOf(snapshot.get(i)));
+        }
+        return pending;
+    }
+
+    @Scheduled(fixedDelayString = "${app.tweet.like-counter.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            unflushed.reset();
+            long now = System.currentTimeMillis();
+            stringRedisTemplate.execute(ROTATE_SCRIPT, List.of(PENDING_KEY, BATCH_SEQ_KEY, UNAPPLIED_BATCHES_KEY));
+            // Includes batches left behind by an instance that died mid-flush; re-applying one is a no-op per tweet.
+            // Applied in sequence order, and a failure stops the flush, so no batch is applied ahead of an earlier one
+            Set<String> unappliedBatchIds = stringRedisTemplate.opsForZSet().range(UNAPPLIED_BATCHES_KEY, 0, -1);
+            if (unappliedBatchIds != null) {
+                unappliedBatchIds.forEach(this::applyBatch);
+            }
+            stringRedisTemplate.opsForZSet().removeRangeByScore(APPLIED_BATCHES_KEY, 0, now - appliedGrace.toMillis());
+        } catch (DataAccessException e) {
+            log.error("LikeCounterService::flush - Flush failed, deltas stay pending. Error: {}", e.getMessage());
+            meterRegistry.counter("tweet.likes.flush.failures").increment();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdownNow();
+        retryExecutor.shutdown();
+        flush();
+    }
+
+    private void applyBatch(String batchId) {
+        String batchKey = BATCH_KEY_PREFIX + batchId;
+        Map<String, Long> deltas = new HashMap<>();
+        stringRedisTemplate.<String, String>opsForHash().entries(batchKey).forEach((tweetId, delta) -> {
+            long value = Long.parseLong(delta);
+            if (value != 0) {
+                deltas.put(tweetId, value);
+            }
+        });
+        if (!deltas.isEmpty()) {
+            Long batchSeq = batchSeq(batchId);
+            if (batchSeq != null) {
+                tweetRepository.applyLikeCountBatch(batchSeq, deltas);
+            } else {
+                tweetRepository.applyLegacyLikeCountBatch(batchId, deltas);
+            }
+            tweetCacheService.invalidate(deltas.keySet());
+        }
+        // The batch stays readable for a short grace period, covering reads that fetched the document before this flush
+        stringRedisTemplate.execute(COMPLETE_SCRIPT,
+                List.of(UNAPPLIED_BATCHES_KEY, APPLIED_BATCHES_KEY, batchKey),
+                batchId, String.valueOf(System.currentTimeMillis()), String.valueOf(appliedGrace.toMillis()));
+        meterRegistry.counter("tweet.likes.flush.tweets").increment(deltas.size());
+        log.info("LikeCounterService::applyBatch - Applied like batch {} to {} tweets", batchId, deltas.size());
+    }
+
+    private void buffer(String tweetId, long delta, String opId) {
+        stringRedisTemplate.execute(RECORD_SCRIPT, List.of(PENDING_KEY, OP_KEY_PREFIX + opId),
+                tweetId, String.valueOf(delta), String.valueOf(OP_TTL.toSeconds()));
+        unflushed.increment();
+        if (unflushed.sum() >= flushThreshold) {
+            requestFlush();
+        }
+    }
+
+    private void applyDirectly(String tweetId, long delta) {
+        tweetRepository.incrementLikesCount(tweetId, delta);
+        tweetCacheService.invalidate(tweetId);
+    }
+
+    // Backs off up to a minute between tries, well inside OP_TTL, so a late retry still sees the op id if it landed
+    private void scheduleRetry(String tweetId, long delta, String opId, int retry) {
+        if (retry > MAX_BACKGROUND_RETRIES) {
+            log.error("LikeCounterService::scheduleRetry - Gave up on like delta {} for tweetId: {}", delta, tweetId);
+            meterRegistry.counter("tweet.likes.record.lost").increment();
+            return;
+        }
+        meterRegistry.counter("tweet.likes.record.retries").increment();
+        try {
+            retryExecutor.schedule(() -> {
+                try {
+                    buffer(tweetId, delta, opId);
+                } catch (DataAccessException e) {
+                    scheduleRetry(tweetId, delta, opId, retry + 1);
+                }
+            }, Math.min(1L << retry, 60), TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            log.error("LikeCounterService::scheduleRetry - Shutting down, like delta {} for tweetId: {} is not recorded",
+                    delta, tweetId);
+            meterRegistry.counter("tweet.likes.record.lost").increment();
+        }
+    }
+
+    private void requestFlush() {
+        if (flushLock.isLocked()) {
+            return;
+        }
+        try {
+            flushExecutor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            log.debug("LikeCounterService::requestFlush - Flush executor is shut down");
+        }
+    }
+
+    // Live deltas have no batch; a legacy batch is counted, as the document no longer says whether it has it
+    private void addDeltas(Map<String, Long> pending, List<Object> deltas, List<Tweet> tweets, String batchId) {
+        Long batchSeq = batchId == null ? null : batchSeq(batchId);
+        for (int i = 0; i < deltas.size(); i++) {
+            Object delta = deltas.get(i);
+            Tweet tweet = tweets.get(i);
+            if (delta == null || (batchSeq != null && tweet.getLastAppliedLikeBatch() != null
+                    && batchSeq <= tweet.getLastAppliedLikeBatch())) {
+                continue;
+            }
+            pending.merge(tweet.getId(), Long.parseLong(delta.toString()), Long::sum);
+        }
+    }
+
+    // Null for a batch rotated before batches had sequence numbers, which carries a random id instead
+    private static Long batchSeq(String batchId) {
+        try {
+            return Long.parseLong(batchId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.david.tweet_service.service;
+
+import com.david.common.dto.ApiEventMessage;
+import com.david.tweet_service.entity.OutboxEvent;
+import com.david.tweet_service.entity.Tweet;
+import com.david.tweet_service.entity.TweetLike;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Mongo runs without a replica set here, so an event cannot share a transaction with its write. Instead it is
+// inserted as PREPARED before the write and committed after it; the relay only publishes committed events, and
+// resolves PREPARED ones abandoned by a crash by checking whether their write happened.
+@Service
+@Slf4j
+public class OutboxService {
+
+    private final MongoTemplate mongoTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer publishLagTimer;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration claimLease;
+    private final Duration confirmTimeout;
+    private final Duration prepareTimeout;
+
+    public OutboxService(
+            MongoTemplate mongoTemplate,
+            RabbitTemplate rabbitTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.tweet.outbox.batch-size:100}") int batchSize,
+            @Value("${app.tweet.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${app.tweet.outbox.claim-lease:30s}") Duration claimLease,
+            @Value("${app.tweet.outbox.confirm-timeout:5s}") Duration confirmTimeout,
+            @Value("${app.tweet.outbox.prepare-timeout:5m}") Duration prepareTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.claimLease = claimLease;
+        this.confirmTimeout = confirmTimeout;
+        this.prepareTimeout = prepareTimeout;
+        this.publishLagTimer = meterRegistry.timer("tweet.outbox.publish.lag");
+    }
+
+    public OutboxEvent prepare(String routingKey, String aggregateId, String eventType, Object payload) {
+        long now = System.currentTimeMillis();
+        return mongoTemplate.insert(OutboxEvent.builder()
+                .routingKey(routingKey)
+                .aggregateId(aggregateId)
+                .message(ApiEventMessage.builder()
+                        .eventId(UUID.randomUUID().toString())
+                        .eventType(eventType)
+                        .timestamp(String.valueOf(now))
+                        .payload(payload)
+                        .build())
+                .status(OutboxEvent.Status.PREPARED)
+                .createdAt(now)
+                .build());
+    }
+
+    public void commit(OutboxEvent event) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(event.getId())),
+                Update.update("status", OutboxEvent.Status.PENDING), OutboxEvent.class);
+    }
+
+    // For a write that failed or turned out to be a no-op
+    public void discard(OutboxEvent event) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(event.getId())), OutboxEvent.class);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tweet.outbox.relay-interval-ms:200}")
+    public void relay() {
+        int published;
+        do {
+            published = relayBatch();
+        } while (published == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tweet.outbox.recovery-interval-ms:60000}")
+    public void recoverPrepared() {
+        Query query = Query.query(Criteria.where("status").is(OutboxEvent.Status.PREPARED)
+                        .and("createdAt").lt(System.currentTimeMillis() - prepareTimeout.toMillis()))
+                .limit(batchSize);
+        for (OutboxEvent event : mongoTemplate.find(query, OutboxEvent.class)) {
+            Query prepared = Query.query(Criteria.where("_id").is(event.getId()).and("status").is(OutboxEvent.Status.PREPARED));
+            if (isWritten(event)) {
+                mongoTemplate.updateFirst(prepared, Update.update("status", OutboxEvent.Status.PENDING), OutboxEvent.class);
+                log.info("OutboxService::recoverPrepared - Committed abandoned event {} for {}", event.getId(), event.getAggregateId());
+            } else {
+                mongoTemplate.remove(prepared, OutboxEvent.class);
+                log.info("OutboxService::recoverPrepared - Dropped abandoned event {} for {}", event.getId(), event.getAggregateId());
+            }
+        }
+    }
+
+    // Claims a batch, publishes it on one channel and waits for all confirms at once. If that fails, the events are
+    // retried one by one so a single bad event cannot hold back the rest. Events that still fail keep their claim
+    // until it lapses, so delivery is at least once; after max-attempts they are parked as FAILED.
+    private int relayBatch() {
+        long now = System.currentTimeMillis();
+        Query candidates = Query.query(Criteria.where("status").is(OutboxEvent.Status.PENDING).and("claimedUntil").lt(now))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(batchSize);
+        candidates.fields().include("_id");
+        List<String> candidateIds = mongoTemplate.find(candidates, OutboxEvent.class).stream()
+                .map(OutboxEvent::getId)
+                .toList();
+        if (candidateIds.isEmpty()) {
+            return 0;
+        }
+        String claimToken = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(candidateIds)
+                        .and("status").is(OutboxEvent.Status.PENDING)
+                        .and("claimedUntil").lt(now)),
+                new Update()
+                        .set("claimToken", claimToken)
+                        .set("claimedUntil", now + claimLease.toMillis())
+                        .inc("attempts", 1),
+                OutboxEvent.class);
+        List<OutboxEvent> events = mongoTemplate.find(
+                Query.query(Criteria.where("claimToken").is(claimToken)).with(Sort.by(Sort.Direction.ASC, "createdAt")),
+                OutboxEvent.class);
+        if (events.isEmpty()) {
+            return candidateIds.size();
+        }
+        List<OutboxEvent> sent = new ArrayList<>();
+        List<OutboxEvent> failed = new ArrayList<>();
+        try {
+            publish(events);
+            sent.addAll(events);
+        } catch (AmqpException e) {
+            log.warn("OutboxService::relayBatch - Failed to publish {} events together, retrying one by one. Error: {}",
+                    events.size(), e.getMessage());
+            for (OutboxEvent event : events) {
+                try {
+                    publish(List.of(event));
+                    sent.add(event);
+                } catch (AmqpException eventError) {
+                    log.error("OutboxService::relayBatch - Failed to publish event {} (attempt {}). Error: {}",
+                            event.getId(), event.getAttempts(), eventError.getMessage());
+                    meterRegistry.counter("tweet.outbox.publish.failures").increment();
+                    failed.add(event);
+                }
+            }
+        }
+        if (!sent.isEmpty()) {
+            markSent(claimToken, sent);
+        }
+        List<String> exhaustedIds = failed.stream()
+                .filter(event -> event.getAttempts() >= maxAttempts)
+                .map(OutboxEvent::getId)
+                .toList();
+        if (!exhaustedIds.isEmpty()) {
+            park(claimToken, exhaustedIds);
+        }
+        return candidateIds.size();
+    }
+
+    private void publish(List<OutboxEvent> events) {
+        rabbitTemplate.invoke(operations -> {
+            events.forEach(event -> operations.convertAndSend(event.getRoutingKey(), event.getMessage()));
+            operations.waitForConfirmsOrDie(confirmTimeout.toMillis());
+            return null;
+        });
+    }
+
+    private void markSent(String claimToken, List<OutboxEvent> events) {
+        Date sentAt = new Date();
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(events.stream().map(OutboxEvent::getId).toList())
+                        .and("claimToken").is(claimToken)),
+                new Update()
+                        .set("status", OutboxEvent.Status.SENT)
+                        .set("sentAt", sentAt)
+                        .unset("claimToken"),
+                OutboxEvent.class);
+        events.forEach(event -> publishLagTimer.record(sentAt.getTime() - event.getCreatedAt(), TimeUnit.MILLISECONDS));
+        meterRegistry.counter("tweet.outbox.published").increment(events.size());
+    }
+
+    private void park(String claimToken, List<String> eventIds) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(eventIds).and("claimToken").is(claimToken)),
+                new Update()
+                        .set("status", OutboxEvent.Status.FAILED)
+                        .unset("claimToken"),
+                OutboxEvent.class);
+        log.error("OutboxService::relayBatch - Parked events {} after {} attempts", eventIds, maxAttempts);
+        meterRegistry.counter("tweet.outbox.parked").increment(eventIds.size());
+    }
+
+    private boolean isWritten(OutboxEvent event) {
+        return switch (event.getMessage().getEventType()) {
+            case "TWEET_CREATED" -> mongoTemplate.exists(Query.query(Criteria.where("_id").is(event.getAggregateId())), Tweet.class);
+            case "TWEET_LIKED" -> mongoTemplate.exists(Query.query(Criteria.where("_id").is(event.getAggregateId())), TweetLike.class);
+            case "TWEET_DELETED" -> !mongoTemplate.exists(Query.query(Criteria.where("_id").is(event.getAggregateId())), Tweet.class);
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,272 @@
+package com.david.tweet_service.service;
+
+import com.david.tweet_service.dto.response.TrendingHashtagResponse;
+import com.david.tweet_service.entity.HashtagBucketSnapshot;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// The window is a ring of time buckets, each a count-min sketch plus its own top-K. Memory is fixed by the
+// bucket count, sketch size and K, however many distinct hashtags show up. The ranking is recomputed on a
+// schedule, so serving it is a read of a precomputed list.
+@Service
+@Slf4j
+public class TrendingHashtagService {
+
+    // Bumped whenever the sketch hashing changes, so snapshots counted with another hash are not restored
+    static final int HASH_VERSION = 2;
+    private static final int ROW_SEED = 0x9747b28c;
+
+    private final MongoTemplate mongoTemplate;
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int depth;
+    private final int width;
+    private final int topK;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private volatile List<TrendingHashtagResponse> trending = List.of();
+
+    public TrendingHashtagService(
+            MongoTemplate mongoTemplate,
+            @Value("${app.tweet.trending.bucket:5m}") Duration bucket,
+            @Value("${app.tweet.trending.window:1h}") Duration window,
+            @Value("${app.tweet.trending.sketch.depth:4}") int depth,
+            @Value("${app.tweet.trending.sketch.width:2048}") int width,
+            @Value("${app.tweet.trending.top-k:50}") int topK) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketMillis = bucket.toMillis();
+        this.bucketCount = (int) Math.max(1, window.toMillis() / bucketMillis);
+        this.depth = depth;
+        this.width = width;
+        this.topK = topK;
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    public void record(Collection<String> hashtags, long createdAt) {
+        if (hashtags == null || hashtags.isEmpty()) {
+            return;
+        }
+        long bucketStart = createdAt - Math.floorMod(createdAt, bucketMillis);
+        if (bucketStart < oldestLiveBucketStart() || bucketStart > currentBucketStart()) {
+            return;
+        }
+        Bucket bucket = bucketFor(bucketStart);
+        // A tweet repeating a hashtag counts once for it
+        hashtags.stream()
+                .map(TrendingHashtagService::normalize)
+                .filter(hashtag -> !hashtag.isEmpty())
+                .distinct()
+                .forEach(bucket::add);
+    }
+
+    public List<TrendingHashtagResponse> getTrending(int limit) {
+        List<TrendingHashtagResponse> current = trending;
+        return current.subList(0, Math.min(Math.max(limit, 0), current.size()));
+    }
+
+    // Candidates are the union of the per-bucket top-K; each is scored by its sketch estimate across the window,
+    // which catches a hashtag that is steady in every bucket without leading any one of them
+    @Scheduled(fixedDelayString = "${app.tweet.trending.refresh-interval-ms:5000}")
+    public void refresh() {
+        List<Bucket> live = liveBuckets();
+        Set<String> candidates = new HashSet<>();
+        live.forEach(bucket -> candidates.addAll(bucket.heavyHitters().keySet()));
+        PriorityQueue<TrendingHashtagResponse> top = new PriorityQueue<>(Comparator.comparingLong(TrendingHashtagResponse::getCount));
+        for (String hashtag : candidates) {
+            long count = 0;
+            for (Bucket bucket : live) {
+                count += bucket.estimate(hashtag);
+            }
+            top.add(TrendingHashtagResponse.builder().hashtag(hashtag).count(count).build());
+            if (top.size() > topK) {
+                top.poll();
+            }
+        }
+        List<TrendingHashtagResponse> ranked = new ArrayList<>(top);
+        ranked.sort(Comparator.comparingLong(TrendingHashtagResponse::getCount).reversed()
+                .thenComparing(TrendingHashtagResponse::getHashtag));
+        trending = List.copyOf(ranked);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tweet.trending.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        try {
+            for (Bucket bucket : liveBuckets()) {
+                mongoTemplate.save(bucket.toSnapshot());
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("_id").lt(oldestLiveBucketStart())), HashtagBucketSnapshot.class);
+        } catch (DataAccessException e) {
+            log.warn("TrendingHashtagService::snapshot - Failed to persist hashtag buckets. Error: {}", e.getMessage());
+        }
+    }
+
+    // Runs while the bean is created, before any listener container starts consuming, so restored buckets replace
+    // empty ones instead of being added on top of events this instance has already counted
+    @PostConstruct
+    public void restore() {
+        int restored = 0;
+        try {
+            List<HashtagBucketSnapshot> snapshots = mongoTemplate.find(
+                    Query.query(Criteria.where("_id").gte(oldestLiveBucketStart())), HashtagBucketSnapshot.class);
+            for (HashtagBucketSnapshot snapshot : snapshots) {
+                if (snapshot.getHashVersion() == HASH_VERSION && snapshot.getDepth() == depth && snapshot.getWidth() == width
+                        && snapshot.getBucketStart() <= currentBucketStart()) {
+                    long bucketStart = snapshot.getBucketStart();
+                    buckets.set((int) Math.floorMod(bucketStart / bucketMillis, (long) bucketCount), new Bucket(snapshot));
+                    restored++;
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("TrendingHashtagService::restore - Failed to restore hashtag buckets. Error: {}", e.getMessage());
+        }
+        refresh();
+        log.info("TrendingHashtagService::restore - Restored {} hashtag buckets", restored);
+    }
+
+    private Bucket bucketFor(long bucketStart) {
+        int index = (int) Math.floorMod(bucketStart / bucketMillis, (long) bucketCount);
+        while (true) {
+            Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.start >= bucketStart) {
+                return bucket;
+            }
+            Bucket fresh = new Bucket(bucketStart);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private List<Bucket> liveBuckets() {
+        long oldest = oldestLiveBucketStart();
+        List<Bucket> live = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.start >= oldest) {
+                live.add(bucket);
+            }
+        }
+        return live;
+    }
+
+    private long currentBucketStart() {
+        long now = System.currentTimeMillis();
+        return now - Math.floorMod(now, bucketMillis);
+    }
+
+    private long oldestLiveBucketStart() {
+        return currentBucketStart() - (bucketCount - 1) * bucketMillis;
+    }
+
+    private static String normalize(String hashtag) {
+        String trimmed = hashtag.trim();
+        return (trimmed.startsWith("#") ? trimmed.substring(1) : trimmed).toLowerCase(Locale.ROOT);
+    }
+
+    private final class Bucket {
+
+        private final long start;
+        private final long[] sketch = new long[depth * width];
+        private final Map<String, Long> heavyHitters = new HashMap<>();
+
+        private Bucket(long start) {
+            this.start = start;
+        }
+
+        private Bucket(HashtagBucketSnapshot snapshot) {
+            this.start = snapshot.getBucketStart();
+            long[] counters = snapshot.getSketch();
+            System.arraycopy(counters, 0, sketch, 0, Math.min(sketch.length, counters.length));
+            for (int i = 0; i < snapshot.getHashtags().size() && i < snapshot.getCounts().size(); i++) {
+                offer(snapshot.getHashtags().get(i), snapshot.getCounts().get(i));
+            }
+        }
+
+        private synchronized void add(String hashtag) {
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                int cell = cell(hashtag, row);
+                estimate = Math.min(estimate, ++sketch[cell]);
+            }
+            offer(hashtag, estimate);
+        }
+
+        private synchronized long estimate(String hashtag) {
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                estimate = Math.min(estimate, sketch[cell(hashtag, row)]);
+            }
+            return estimate;
+        }
+
+        private synchronized Map<String, Long> heavyHitters() {
+            return new HashMap<>(heavyHitters);
+        }
+
+        // Keeps at most topK entries; a newcomer only gets in by beating the current minimum
+        private void offer(String hashtag, long estimate) {
+            if (heavyHitters.containsKey(hashtag) || heavyHitters.size() < topK) {
+                heavyHitters.put(hashtag, estimate);
+                return;
+            }
+            Map.Entry<String, Long> min = Collections.min(heavyHitters.entrySet(), Map.Entry.comparingByValue());
+            if (estimate > min.getValue()) {
+                heavyHitters.remove(min.getKey());
+                heavyHitters.put(hashtag, estimate);
+            }
+        }
+
+        private synchronized HashtagBucketSnapshot toSnapshot() {
+            List<String> hashtags = new ArrayList<>(heavyHitters.keySet());
+            return HashtagBucketSnapshot.builder()
+                    .bucketStart(start)
+                    .hashVersion(HASH_VERSION)
+                    .depth(depth)
+                    .width(width)
+                    .sketch(sketch.clone())
+                    .hashtags(hashtags)
+                    .counts(hashtags.stream().map(heavyHitters::get).toList())
+                    .build();
+        }
+
+        // Each row hashes with its own murmur3 seed, so two hashtags that collide in one row are unlikely to collide
+        // in the others, which is what the count-min error bound assumes
+        private int cell(String hashtag, int row) {
+            return row * width + Math.floorMod(murmur3(hashtag, ROW_SEED * (row + 1)), width);
+        }
+    }
+
+    // MurmurHash3 x86_32 over the UTF-16 code units of the string
+    static int murmur3(String value, int seed) {
+        int h = seed;
+        int length = value.length();
+        for (int i = 1; i < length; i += 2) {
+            h ^= mixK(value.charAt(i - 1) | (value.charAt(i) << 16));
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+        if ((length & 1) == 1) {
+            h ^= mixK(value.charAt(length - 1));
+        }
+        h ^= 2 * length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int mixK(int k) {
+        return Integer.rotateLeft(k * 0xcc9e2d51, 15) * 0x1b873593;
+    }
+}
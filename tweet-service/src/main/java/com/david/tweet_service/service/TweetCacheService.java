@@ -0,0 +1,264 @@
+package com.david.tweet_service.service;
+
+import com.david.tweet_service.entity.Tweet;
+import com.david.tweet_service.repository.TweetRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caches the stored tweet document, never a response: visibility, pending likes and likedByMe are all
+// resolved per request on top of it. Any change to a document is followed by invalidate(), which clears
+// Redis and tells every instance to drop its in-process copy. Each tweet has a generation in Redis that
+// invalidate() bumps; a back-fill only lands if the generation is unchanged since the miss, so a load that
+// raced a change cannot put the old document back.
+@Service
+@Slf4j
+public class TweetCacheService implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "tweet:cache:invalidations";
+    private static final String KEY_PREFIX = "tweet:cache:";
+    private static final String GENERATION_KEY_PREFIX = "tweet:cache:gen:";
+
+    // Sets each document only if its generation is still the one read with the cache miss, i.e. nothing was
+    // invalidated while it was being loaded. KEYS come in (generation, document) pairs
+    private static final RedisScript<Long> BACKFILL_SCRIPT = new DefaultRedisScript<>("""
+            local written = 0
+            for i = 1, #KEYS, 2 do
+                local generation = redis.call('GET', KEYS[i]) or '0'
+                if generation == ARGV[i + 1] then
+                    redis.call('SET', KEYS[i + 1], ARGV[i + 2], 'EX', ARGV[1])
+                    written = written + 1
+                end
+            end
+            return written
+            """, Long.class);
+
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>("""
+            for i = 1, #KEYS, 2 do
+                redis.call('DEL', KEYS[i + 1])
+                redis.call('INCR', KEYS[i])
+                redis.call('EXPIRE', KEYS[i], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    private final TweetRepository tweetRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Tweet> localCache;
+    private final Duration redisTtl;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Timer redisLoadTimer;
+    private final Timer mongoLoadTimer;
+    private final AtomicLong localInvalidations = new AtomicLong();
+
+    public TweetCacheService(
+            TweetRepository tweetRepository,
+            StringRedisTemplate stringRedisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.tweet.cache.local.max-size:10000}") long localMaxSize,
+            @Value("${app.tweet.cache.local.ttl:30s}") Duration localTtl,
+            @Value("${app.tweet.cache.redis.ttl:10m}") Duration redisTtl) {
+        this.tweetRepository = tweetRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.redisTtl = redisTtl;
+        // The local TTL bounds staleness if an invalidation message is lost
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "tweet.cache.local");
+        Gauge.builder("tweet.cache.hit.ratio", localCache, cache -> cache.stats().hitRate())
+                .tag("tier", "local")
+                .register(meterRegistry);
+        this.redisHits = meterRegistry.counter("tweet.cache.requests", "tier", "redis", "result", "hit");
+        this.redisMisses = meterRegistry.counter("tweet.cache.requests", "tier", "redis", "result", "miss");
+        Gauge.builder("tweet.cache.hit.ratio", this, service -> service.redisHitRatio())
+                .tag("tier", "redis")
+                .register(meterRegistry);
+        this.redisLoadTimer = meterRegistry.timer("tweet.cache.load", "tier", "redis");
+        this.mongoLoadTimer = meterRegistry.timer("tweet.cache.load", "tier", "mongo");
+    }
+
+    public Optional<Tweet> getTweet(String tweetId) {
+        Tweet tweet = localCache.getIfPresent(tweetId);
+        if (tweet != null) {
+            return Optional.of(tweet);
+        }
+        long seenInvalidations = localInvalidations.get();
+        Map<String, Tweet> fromRedis = new HashMap<>();
+        Map<String, String> generations = new HashMap<>();
+        redisLoadTimer.record(() -> readFromRedis(List.of(tweetId), fromRedis, generations));
+        tweet = fromRedis.get(tweetId);
+        if (tweet != null) {
+            redisHits.increment();
+        } else {
+            redisMisses.increment();
+            tweet = mongoLoadTimer.record(() -> tweetRepository.findById(tweetId).orElse(null));
+            if (tweet == null) {
+                return Optional.empty();
+            }
+            writeToRedis(List.of(tweet), generations);
+        }
+        putLocal(Map.of(tweetId, tweet), seenInvalidations);
+        return Optional.of(tweet);
+    }
+
+    // One round trip per tier: local lookup, a single MGET, then one projected Mongo query for what is still missing.
+    // Tweets that do not exist are absent from the result.
+    public Map<String, Tweet> getTweets(Collection<String> tweetIds) {
+        Map<String, Tweet> tweetsById = new HashMap<>(localCache.getAllPresent(tweetIds));
+        List<String> missingIds = tweetIds.stream()
+                .filter(tweetId -> !tweetsById.containsKey(tweetId))
+                .distinct()
+                .toList();
+        if (missingIds.isEmpty()) {
+            return tweetsById;
+        }
+        long seenInvalidations = localInvalidations.get();
+        Map<String, Tweet> loaded = new HashMap<>();
+        Map<String, String> generations = new HashMap<>();
+        redisLoadTimer.record(() -> readFromRedis(missingIds, loaded, generations));
+        redisHits.increment(loaded.size());
+        redisMisses.increment(missingIds.size() - loaded.size());
+        List<String> unresolvedIds = missingIds.stream()
+                .filter(tweetId -> !loaded.containsKey(tweetId))
+                .toList();
+        if (!unresolvedIds.isEmpty()) {
+            List<Tweet> fromMongo = mongoLoadTimer.record(() -> tweetRepository.findCacheableByIds(unresolvedIds));
+            writeToRedis(fromMongo, generations);
+            fromMongo.forEach(tweet -> loaded.put(tweet.getId(), tweet));
+        }
+        tweetsById.putAll(loaded);
+        putLocal(loaded, seenInvalidations);
+        return tweetsById;
+    }
+
+    public void invalidate(String tweetId) {
+        invalidate(List.of(tweetId));
+    }
+
+    // Redis is cleared and the generations bumped before the broadcast, so an instance reloading on the message
+    // cannot pick up the old copy, and a load already in flight cannot write it back
+    public void invalidate(Collection<String> tweetIds) {
+        if (tweetIds.isEmpty()) {
+            return;
+        }
+        invalidateLocal(tweetIds);
+        try {
+            List<String> keys = new ArrayList<>(tweetIds.size() * 2);
+            tweetIds.forEach(tweetId -> {
+                keys.add(GENERATION_KEY_PREFIX + tweetId);
+                keys.add(KEY_PREFIX + tweetId);
+            });
+            stringRedisTemplate.execute(INVALIDATE_SCRIPT, keys, String.valueOf(redisTtl.toSeconds()));
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.join(",", tweetIds));
+        } catch (DataAccessException e) {
+            log.warn("TweetCacheService::invalidate - Failed to invalidate {} tweets across instances. Error: {}",
+                    tweetIds.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        invalidateLocal(Arrays.asList(body.split(",")));
+    }
+
+    // The counter moves before the entries go, so a load that started earlier either sees it moved or has its
+    // put removed by the invalidation
+    private void invalidateLocal(Collection<String> tweetIds) {
+        localInvalidations.incrementAndGet();
+        localCache.invalidateAll(tweetIds);
+    }
+
+    // A load that overlapped any invalidation may hold an old copy, so it is taken back out rather than kept
+    // until the local TTL
+    private void putLocal(Map<String, Tweet> tweetsById, long seenInvalidations) {
+        if (tweetsById.isEmpty()) {
+            return;
+        }
+        localCache.putAll(tweetsById);
+        if (localInvalidations.get() != seenInvalidations) {
+            localCache.invalidateAll(tweetsById.keySet());
+        }
+    }
+
+    // Reads each cached document together with its generation in a single MGET
+    private void readFromRedis(List<String> tweetIds, Map<String, Tweet> tweetsById, Map<String, String> generations) {
+        try {
+            List<String> keys = new ArrayList<>(tweetIds.size() * 2);
+            tweetIds.forEach(tweetId -> {
+                keys.add(KEY_PREFIX + tweetId);
+                keys.add(GENERATION_KEY_PREFIX + tweetId);
+            });
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return;
+            }
+            for (int i = 0; i < tweetIds.size(); i++) {
+                String json = values.get(i * 2);
+                String generation = values.get(i * 2 + 1);
+                generations.put(tweetIds.get(i), generation == null ? "0" : generation);
+                if (json != null) {
+                    tweetsById.put(tweetIds.get(i), objectMapper.readValue(json, Tweet.class));
+                }
+            }
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("TweetCacheService::readFromRedis - Failed to read {} cached tweets. Error: {}", tweetIds.size(), e.getMessage());
+        }
+    }
+
+    // Back-fills in one script call. Tweets whose generation could not be read are not cached at all
+    private void writeToRedis(List<Tweet> tweets, Map<String, String> generations) {
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(redisTtl.toSeconds()));
+        try {
+            for (Tweet tweet : tweets) {
+                String generation = generations.get(tweet.getId());
+                if (generation == null) {
+                    continue;
+                }
+                keys.add(GENERATION_KEY_PREFIX + tweet.getId());
+                keys.add(KEY_PREFIX + tweet.getId());
+                args.add(generation);
+                args.add(objectMapper.writeValueAsString(tweet));
+            }
+            if (!keys.isEmpty()) {
+                stringRedisTemplate.execute(BACKFILL_SCRIPT, keys, args.toArray());
+            }
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("TweetCacheService::writeToRedis - Failed to cache {} tweets. Error: {}", tweets.size(), e.getMessage());
+        }
+    }
+
+    private double redisHitRatio() {
+        double requests = redisHits.count() + redisMisses.count();
+        return requests == 0 ? 0 : redisHits.count() / requests;
+    }
+}
@@ -0,0 +1,86 @@
+package com.david.tweet_service.service;
+
+import com.david.tweet_service.dto.response.TweetLikeMigrationResponse;
+import com.david.tweet_service.entity.Tweet;
+import com.david.tweet_service.entity.TweetLike;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TweetLikeMigrationService {
+
+    private final MongoTemplate mongoTemplate;
+
+    // Moves embedded likedBy arrays into tweet_likes and drops the array, so an interrupted run
+    // resumes with the tweets that still have one
+    @PreAuthorize("hasRole('ADMIN')")
+    public TweetLikeMigrationResponse migrateEmbeddedLikes(int batchSize) {
+        log.info("TweetLikeMigrationService::migrateEmbeddedLikes - Execution started with batchSize: {}", batchSize);
+        long startedAt = System.currentTimeMillis();
+        long migratedTweets = 0;
+        long migratedLikes = 0;
+        while (true) {
+            Query query = Query.query(Criteria.where("likedBy").exists(true))
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(batchSize);
+            query.fields().include("_id").include("likedBy");
+            List<Document> tweets = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Tweet.class));
+            if (tweets.isEmpty()) {
+                break;
+            }
+            for (Document tweet : tweets) {
+                migratedLikes += migrateTweet(tweet);
+                migratedTweets++;
+            }
+            log.info("TweetLikeMigrationService::migrateEmbeddedLikes - {} tweets, {} likes migrated so far",
+                    migratedTweets, migratedLikes);
+        }
+        long durationMs = System.currentTimeMillis() - startedAt;
+        log.info("TweetLikeMigrationService::migrateEmbeddedLikes - Execution ended, migrated {} likes from {} tweets in {} ms",
+                migratedLikes, migratedTweets, durationMs);
+        return TweetLikeMigrationResponse.builder()
+                .migratedTweets(migratedTweets)
+                .migratedLikes(migratedLikes)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    private long migrateTweet(Document tweet) {
+        Object rawId = tweet.get("_id");
+        String tweetId = rawId.toString();
+        List<String> likedBy = tweet.getList("likedBy", String.class, List.of());
+        int inserted = 0;
+        if (!likedBy.isEmpty()) {
+            BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TweetLike.class);
+            long now = System.currentTimeMillis();
+            for (String userId : likedBy) {
+                String id = TweetLike.idOf(tweetId, userId);
+                bulkOperations.upsert(Query.query(Criteria.where("_id").is(id)), new Update()
+                        .setOnInsert("tweetId", tweetId)
+                        .setOnInsert("userId", userId)
+                        .setOnInsert("createdAt", now));
+            }
+            inserted = bulkOperations.execute().getUpserts().size();
+        }
+        // likesCount already includes every likedBy entry; users who liked again through tweet_likes before
+        // this ran were counted twice, so those duplicates come off the counter in the same update
+        long duplicates = likedBy.size() - inserted;
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(rawId)), new Update()
+                .inc("stats.likesCount", -duplicates)
+                .unset("likedBy"), mongoTemplate.getCollectionName(Tweet.class));
+        return inserted;
+    }
+}
@@ -1,25 +1,30 @@
 package com.david.tweet_service.service;
 
-import com.david.common.dto.ApiEventMessage;
 import com.david.common.dto.FeignApiResponse;
 import com.david.common.dto.media.MediaResponse;
 import com.david.common.dto.tweet.StatsResponse;
+import com.david.common.dto.tweet.TweetBatchResponse;
 import com.david.common.dto.tweet.TweetCreatedEventPayload;
 import com.david.common.dto.tweet.TweetLikedEventPayload;
 import com.david.common.dto.tweet.TweetResponse;
 import com.david.common.enums.Visibility;
 import com.david.tweet_service.dto.request.TweetRequest;
+import com.david.tweet_service.entity.Media;
+import com.david.tweet_service.entity.OutboxEvent;
 import com.david.tweet_service.entity.Tweet;
+import com.david.tweet_service.entity.TweetLike;
 import com.david.tweet_service.exception.TweetNotFoundException;
 import com.david.tweet_service.exception.TweetServiceException;
 import com.david.tweet_service.mapper.MediaMapper;
 import com.david.tweet_service.mapper.TweetMapper;
 import com.david.tweet_service.repository.MediaClient;
+import com.david.tweet_service.repository.TweetLikeRepository;
 import com.david.tweet_service.repository.TweetRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -30,11 +35,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
@@ -42,8 +44,13 @@ import java.util.UUID;
 public class TweetService {
 
     private final TweetRepository tweetRepository;
+    private final TweetLikeRepository tweetLikeRepository;
+    private final LikeCounterService likeCounterService;
+    private final TweetCacheService tweetCacheService;
+    private final ImpressionService impressionService;
+    private final UserTweetStatsService userTweetStatsService;
     private final MediaClient mediaClient;
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
     private final TweetMapper tweetMapper;
     private final MediaMapper mediaMapper;
 
@@ -55,11 +62,10 @@ public class TweetService {
     private String tweetDeletedRoutingKey;
 
 
-    //    @Cacheable(value = "cacheTweet", key = "#tweetId")
     public TweetResponse getTweetById(String tweetId) {
         log.info("TweetService::getTweetById - Execution started for tweetId: {}", tweetId);
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Tweet savedTweet = tweetRepository.findById(tweetId)
+        Tweet savedTweet = tweetCacheService.getTweet(tweetId)
                 .orElseThrow(() -> new TweetNotFoundException("Tweet not found with id: " + tweetId));
 
         if (savedTweet.getVisibility() == Visibility.PRIVATE) {
@@ -75,17 +81,44 @@ public class TweetService {
             }
         }
 
+        if (authentication != null && authentication.getPrincipal() instanceof Jwt jwt) {
+            impressionService.record(jwt.getSubject(), List.of(tweetId));
+        }
         log.info("TweetService::getTweetById - Execution ended for tweetId: {}", tweetId);
-        return tweetMapper.toDto(savedTweet);
+        return toResponses(List.of(savedTweet)).get(0);
     }
 
-    public List<TweetResponse> getTweetsByIds(List<String> tweetIds) {
-        log.info("TweetService::getTweetsByIds - Execution started for tweetIds: {}", tweetIds);
-        List<TweetResponse> tweetResponses = tweetRepository.findAllById(tweetIds).stream()
-                .map(tweetMapper::toDto)
-                .toList();
-        log.info("TweetService::getTweetsByIds - Execution ended for tweetIds: {}", tweetIds);
-        return tweetResponses;
+    public TweetBatchResponse getTweetsByIds(List<String> tweetIds) {
+        log.info("TweetService::getTweetsByIds - Execution started for {} tweetIds", tweetIds.size());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String viewerId = authentication != null && authentication.getPrincipal() instanceof Jwt jwt ? jwt.getSubject() : null;
+        Map<String, Tweet> tweetsById = tweetCacheService.getTweets(tweetIds);
+        List<Tweet> tweets = new ArrayList<>();
+        List<String> missingIds = new ArrayList<>();
+        for (String tweetId : new LinkedHashSet<>(tweetIds)) {
+            Tweet tweet = tweetsById.get(tweetId);
+            // Someone else's private tweet is reported like a missing one, as getTweetById does
+            if (tweet == null || (tweet.getVisibility() == Visibility.PRIVATE && !tweet.getUserId().equals(viewerId))) {
+                missingIds.add(tweetId);
+            } else {
+                tweets.add(tweet);
+            }
+        }
+        log.info("TweetService::getTweetsByIds - Execution ended, found: {}, missing: {}", tweets.size(), missingIds.size());
+        return TweetBatchResponse.builder()
+                .tweets(toResponses(tweets))
+                .missingIds(missingIds)
+                .build();
+    }
+
+    // Only the authenticated caller can be counted as the viewer, so one client cannot inflate views with made-up ids
+    public void recordImpressions(List<String> tweetIds) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            log.warn("TweetService::recordImpressions - Unauthorized access attempt");
+            throw new AuthenticationCredentialsNotFoundException("Unauthorized access");
+        }
+        impressionService.record(jwt.getSubject(), new LinkedHashSet<>(tweetIds));
     }
 
     public List<TweetResponse> getMyTweets(int page, int size, String sortBy) {
@@ -96,18 +129,13 @@ public class TweetService {
             throw new AuthenticationCredentialsNotFoundException("Unauthorized access");
         }
         String userId = jwt.getSubject();
-        System.out.println(userId);
-        long totalTweets = tweetRepository.countByUserId(userId);
-        log.info("Total tweets for user {}: {}", userId, totalTweets);
 
         int p = Math.max(0, page - 1);
         String[] sortParams = sortBy.split(",");
         Sort.Direction direction = sortParams.length > 1 ? Sort.Direction.fromString(sortParams[1]) : Sort.Direction.ASC;
         Sort sortOrder = Sort.by(direction, sortParams[0]);
         Pageable pageable = PageRequest.of(p, size, sortOrder);
-        List<TweetResponse> tweetResponses = tweetRepository.findAllByUserId(userId, pageable).stream()
-                .map(tweetMapper::toDto)
-                .toList();
+        List<TweetResponse> tweetResponses = toResponses(tweetRepository.findAllByUserId(userId, pageable).getContent());
         log.info("TweetService::getMyTweets - Execution ended");
         return tweetResponses;
     }
@@ -119,16 +147,13 @@ public class TweetService {
         Sort.Direction direction = sortParams.length > 1 ? Sort.Direction.fromString(sortParams[1]) : Sort.Direction.ASC;
         Sort sortOrder = Sort.by(direction, sortParams[0]);
         Pageable pageable = PageRequest.of(p, size, sortOrder);
-        List<TweetResponse> tweetResponses = tweetRepository.findAllByUserIdAndVisibility(userId, Visibility.PUBLIC, pageable).stream()
-                .map(tweetMapper::toDto)
-                .toList();
+        List<TweetResponse> tweetResponses = toResponses(tweetRepository.findAllByUserIdAndVisibility(userId, Visibility.PUBLIC, pageable).getContent());
         log.info("TweetService::getPublicTweets - Execution ended");
         return tweetResponses;
     }
 
     @Transactional
-//    @CachePut(value = "cacheTweet", key = "#result.id")
-    public TweetResponse createTweet(TweetRequest tweetRequest, MultipartFile[] mediaFiles) {
+    public TweetResponse createTweet(TweetRequest tweetRequest) {
         log.info("TweetService::createTweet - Execution started");
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
@@ -137,55 +162,41 @@ public class TweetService {
         }
         String userId = jwt.getSubject();
         Tweet tweet = tweetMapper.toEntity(tweetRequest);
-        List<MediaResponse> mediaList = new ArrayList<>();
-        if (mediaFiles != null && mediaFiles.length > 0) {
-            log.info("TweetService::createTweet - Processing media files for tweet");
-            try {
-                FeignApiResponse<List<MediaResponse>> mediaResponse = mediaClient.uploadFiles(mediaFiles, "MEDIA");
-                if (mediaResponse != null) {
-                    mediaList = mediaResponse.getResult();
-                    log.info("ProfileService::createTweet - Media files uploaded successfully");
-                }
-                tweet.setMediaItems(mediaList.stream()
-                        .map(mediaMapper::toEntity)
-                        .toList());
-            } catch (Exception e) {
-                log.error("TweetService::createTweet - Exception occurred while uploading media files: {}", e.getMessage());
-                throw new TweetServiceException("Failed to upload media files" + e.getMessage());
-            }
+        if (tweetRequest.getMediaIds() != null && !tweetRequest.getMediaIds().isEmpty()) {
+            tweet.setMediaItems(resolveMedia(userId, tweetRequest.getMediaIds()));
         }
         tweet.setUserId(userId);
-        Tweet savedTweet = tweetRepository.save(tweet);
-        log.info("TweetService::createTweet - Tweet saved with id: {}", savedTweet.getId());
+        // Id and timestamps are assigned up front so the event can be prepared before the tweet is written
+        long now = System.currentTimeMillis();
+        tweet.setId(new ObjectId().toHexString());
+        tweet.setCreatedAt(now);
+        tweet.setUpdatedAt(now);
         TweetCreatedEventPayload tweetCreatedEventPayload = TweetCreatedEventPayload.builder()
-                .id(savedTweet.getId())
-                .userId(savedTweet.getUserId())
-                .content(savedTweet.getContent())
-                .mediaItems(savedTweet.getMediaItems().stream()
+                .id(tweet.getId())
+                .userId(tweet.getUserId())
+                .content(tweet.getContent())
+                .mediaItems(tweet.getMediaItems().stream()
                         .map(mediaMapper::toDto)
                         .toList())
-                .hashtags(savedTweet.getHashtags())
+                .hashtags(tweet.getHashtags())
                 .statsResponse(StatsResponse.builder()
-                        .likesCount(savedTweet.getStats().getLikesCount())
+                        .likesCount(tweet.getStats().getLikesCount())
                         .build())
-                .visibility(savedTweet.getVisibility())
-                .likedBy(savedTweet.getLikedBy())
-                .createdAt(savedTweet.getCreatedAt())
-                .updatedAt(savedTweet.getUpdatedAt())
+                .visibility(tweet.getVisibility())
+                .createdAt(tweet.getCreatedAt())
+                .updatedAt(tweet.getUpdatedAt())
                 .build();
-
+        OutboxEvent event = outboxService.prepare(tweetCreatedRoutingKey, tweet.getId(), "TWEET_CREATED", tweetCreatedEventPayload);
+        Tweet savedTweet;
         try {
-            rabbitTemplate.convertAndSend(tweetCreatedRoutingKey, ApiEventMessage.builder()
-                    .eventId(UUID.randomUUID().toString())
-                    .eventType("TWEET_CREATED")
-                    .timestamp(String.valueOf(System.currentTimeMillis()))
-                    .payload(tweetCreatedEventPayload)
-                    .build());
-            log.info("TweetService::getTweetById - TweetCreatedEvent published for tweetId: {}", tweetCreatedEventPayload.getId());
-        } catch (Exception e) {
-            log.error("TweetService::getTweetById - Failed to publish TweetCreatedEvent for tweetId: {}. Error: {}", tweetCreatedEventPayload.getId(), e.getMessage());
-            throw new TweetServiceException("Failed to publish tweet created event: " + e.getMessage());
+            savedTweet = tweetRepository.insert(tweet);
+        } catch (RuntimeException e) {
+            outboxService.discard(event);
+            throw e;
         }
+        outboxService.commit(event);
+        userTweetStatsService.increment(userId, 1);
+        log.info("TweetService::createTweet - Tweet saved with id: {}", savedTweet.getId());
         log.info("TweetService::createTweet - Execution ended");
         return tweetMapper.toDto(savedTweet);
     }
@@ -199,39 +210,44 @@ public class TweetService {
             throw new AuthenticationCredentialsNotFoundException("Unauthorized access");
         }
         String userId = jwt.getSubject();
-        Tweet tweet = tweetRepository.findById(tweetId)
-                .orElseThrow(() -> new TweetNotFoundException("Not found tweet with tweetId: " + tweetId));
+        if (!tweetRepository.existsById(tweetId)) {
+            throw new TweetNotFoundException("Not found tweet with tweetId: " + tweetId);
+        }
+        String likeId = TweetLike.idOf(tweetId, userId);
+        OutboxEvent event = outboxService.prepare(tweetLikedRoutingKey, likeId, "TWEET_LIKED", TweetLikedEventPayload.builder()
+                .tweetId(tweetId)
+                .userId(userId)
+                .createdAt(String.valueOf(System.currentTimeMillis()))
+                .build());
+        boolean changed;
+        try {
+            tweetLikeRepository.insert(TweetLike.builder()
+                    .id(likeId)
+                    .tweetId(tweetId)
+                    .userId(userId)
+                    .build());
+            changed = true;
+        } catch (DuplicateKeyException e) {
+            changed = false;
+        } catch (RuntimeException e) {
+            outboxService.discard(event);
+            throw e;
+        }
 
-        if (tweet.getLikedBy().contains(userId)) {
+        if (!changed) {
+            outboxService.discard(event);
             log.info("User {} already liked tweet {}", userId, tweetId);
         } else {
-            tweet.getLikedBy().add(userId);
-            tweet.getStats().setLikesCount(tweet.getStats().getLikesCount() + 1);
+            outboxService.commit(event);
+            // Not atomic with the insert; a crash in between is drift that LikeCountReconciliationService corrects
+            likeCounterService.record(tweetId, 1);
             log.info("User {} liked tweet {}", userId, tweetId);
-
-            try {
-                rabbitTemplate.convertAndSend(tweetLikedRoutingKey, ApiEventMessage.builder()
-                        .eventId(UUID.randomUUID().toString())
-                        .eventType("TWEET_LIKED")
-                        .timestamp(String.valueOf(System.currentTimeMillis()))
-                        .payload(TweetLikedEventPayload.builder()
-                                .tweetId(tweetId)
-                                .userId(userId)
-                                .createdAt(String.valueOf(System.currentTimeMillis()))
-                                .build())
-                        .build());
-                log.info("Published TweetLikedEvent for {}", tweetId);
-            } catch (Exception e) {
-                log.error("Failed to publish liked event: {}", e.getMessage());
-                throw new TweetServiceException("Cannot publish liked event", e);
-            }
         }
         log.info("TweetService::likeTweet - Execution ended");
-        return tweetMapper.toDto(tweetRepository.save(tweet));
+        return getLikedTweetResponse(tweetId);
     }
 
     @Transactional
-//    @CachePut(value = "cacheTweet", key = "#tweetId")
     public TweetResponse unlikeTweet(String tweetId) {
         log.info("TweetService::unlikeTweet - Execution started");
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -240,21 +256,30 @@ public class TweetService {
             throw new AuthenticationCredentialsNotFoundException("Unauthorized access");
         }
         String userId = jwt.getSubject();
-        Tweet tweet = tweetRepository.findById(tweetId)
-                .orElseThrow(() -> new TweetNotFoundException("Not found tweet with tweetId: " + tweetId));
+        if (!tweetRepository.existsById(tweetId)) {
+            throw new TweetNotFoundException("Not found tweet with tweetId: " + tweetId);
+        }
+        boolean changed = tweetLikeRepository.deleteByTweetIdAndUserId(tweetId, userId) > 0;
 
-        if (tweet.getLikedBy().remove(userId)) {
-            tweet.getStats().setLikesCount(Math.max(0, tweet.getStats().getLikesCount() - 1));
+        if (changed) {
+            likeCounterService.record(tweetId, -1);
             log.info("User {} unliked tweet {}", userId, tweetId);
         } else {
             log.info("User {} had not liked tweet {}", userId, tweetId);
         }
         log.info("TweetService::unlikeTweet - Execution ended");
-        return tweetMapper.toDto(tweetRepository.save(tweet));
+        return getLikedTweetResponse(tweetId);
+    }
+
+    // Likes keep returning the tweet as before; it is served from the cache tiers, with the pending like deltas and
+    // likedByMe resolved on top as for any other read
+    private TweetResponse getLikedTweetResponse(String tweetId) {
+        Tweet tweet = tweetCacheService.getTweet(tweetId)
+                .orElseThrow(() -> new TweetNotFoundException("Not found tweet with tweetId: " + tweetId));
+        return toResponses(List.of(tweet)).get(0);
     }
 
     @Transactional
-    //    @CacheEvict(value = "cacheTweet", key = "#tweetId")
     public void deleteTweet(String tweetId) {
         log.info("TweetService::deleteTweet - Execution started for tweetId: {}", tweetId);
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -266,20 +291,85 @@ public class TweetService {
         if (!tweet.getUserId().equals(jwt.getSubject())) {
             throw new AccessDeniedException("You are not the owner of this tweet");
         }
-        tweetRepository.delete(tweet);
+        OutboxEvent event = outboxService.prepare(tweetDeletedRoutingKey, tweetId, "TWEET_DELETED", tweetId);
+        try {
+            tweetRepository.delete(tweet);
+        } catch (RuntimeException e) {
+            outboxService.discard(event);
+            throw e;
+        }
+        outboxService.commit(event);
+        userTweetStatsService.increment(tweet.getUserId(), -1);
+        tweetLikeRepository.deleteAllByTweetId(tweetId);
+        tweetCacheService.invalidate(tweetId);
+        impressionService.forget(tweetId);
         log.info("TweetService::deleteTweet - Tweet deleted with id: {}", tweetId);
+        log.info("TweetService::deleteTweet - Execution ended");
+    }
+
+    // Of the given tweets, the ones the user has liked; a single _id lookup however many tweets are asked about
+    public List<String> getLikedTweetIds(String userId, List<String> tweetIds) {
+        log.info("TweetService::getLikedTweetIds - Execution started for userId: {}, tweets: {}", userId, tweetIds.size());
+        List<String> likeIds = tweetIds.stream()
+                .map(tweetId -> TweetLike.idOf(tweetId, userId))
+                .toList();
+        List<String> likedTweetIds = tweetLikeRepository.findAllById(likeIds).stream()
+                .map(TweetLike::getTweetId)
+                .toList();
+        log.info("TweetService::getLikedTweetIds - Execution ended for userId: {}, liked: {}", userId, likedTweetIds.size());
+        return likedTweetIds;
+    }
+
+    // Media is uploaded to media-service beforehand; only metadata crosses here, and only the uploader may attach it
+    private List<Media> resolveMedia(String userId, List<String> mediaIds) {
+        List<MediaResponse> mediaResponses;
         try {
-            rabbitTemplate.convertAndSend(tweetDeletedRoutingKey, ApiEventMessage.builder()
-                    .eventId(UUID.randomUUID().toString())
-                    .eventType("TWEET_DELETED")
-                    .timestamp(String.valueOf(System.currentTimeMillis()))
-                    .payload(tweetId)
-                    .build());
-            log.info("TweetService::deleteTweet - TweetDeletedEvent published for tweetId: {}", tweetId);
+            FeignApiResponse<List<MediaResponse>> response = mediaClient.getMedia(mediaIds);
+            mediaResponses = response != null && response.getResult() != null ? response.getResult() : List.of();
         } catch (Exception e) {
-            log.error("TweetService::deleteTweet - Failed to publish TweetDeletedEvent for tweetId: {}. Error: {}", tweetId, e.getMessage());
-            throw new TweetServiceException("Failed to publish tweet deleted event: " + e.getMessage());
+            log.error("TweetService::resolveMedia - Exception occurred while fetching media: {}", e.getMessage());
+            throw new TweetServiceException("Failed to fetch media: " + e.getMessage());
         }
-        log.info("TweetService::deleteTweet - Execution ended");
+        Map<String, MediaResponse> mediaById = new HashMap<>();
+        mediaResponses.forEach(media -> mediaById.put(media.getMediaId(), media));
+        List<Media> mediaItems = new ArrayList<>();
+        for (String mediaId : new LinkedHashSet<>(mediaIds)) {
+            MediaResponse media = mediaById.get(mediaId);
+            if (media == null || !userId.equals(media.getOwnerId())) {
+                log.warn("TweetService::resolveMedia - Media {} not found or not owned by user {}", mediaId, userId);
+                throw new TweetServiceException("Media not found: " + mediaId);
+            }
+            mediaItems.add(mediaMapper.toEntity(media));
+        }
+        return mediaItems;
+    }
+
+    // Stored like counts trail the write-behind buffer, so the pending delta is added back in
+    private List<TweetResponse> toResponses(List<Tweet> tweets) {
+        Map<String, Long> pendingLikes = likeCounterService.pendingDeltas(tweets);
+        Map<String, Long> uniqueViewers = impressionService.uniqueViewers(tweets.stream().map(Tweet::getId).toList());
+        List<TweetResponse> tweetResponses = tweets.stream()
+                .map(tweet -> {
+                    TweetResponse tweetResponse = tweetMapper.toDto(tweet);
+                    tweetResponse.setStatsResponse(StatsResponse.builder()
+                            .likesCount(tweet.getStats().getLikesCount() + pendingLikes.getOrDefault(tweet.getId(), 0L))
+                            .build());
+                    tweetResponse.setUniqueViewers(uniqueViewers.getOrDefault(tweet.getId(), 0L));
+                    return tweetResponse;
+                })
+                .toList();
+        return withLikedByMe(tweetResponses);
+    }
+
+    private List<TweetResponse> withLikedByMe(List<TweetResponse> tweetResponses) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (tweetResponses.isEmpty() || authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            return tweetResponses;
+        }
+        Set<String> likedTweetIds = new HashSet<>(getLikedTweetIds(jwt.getSubject(), tweetResponses.stream()
+                .map(TweetResponse::getId)
+                .toList()));
+        tweetResponses.forEach(tweetResponse -> tweetResponse.setLikedByMe(likedTweetIds.contains(tweetResponse.getId())));
+        return tweetResponses;
     }
 }
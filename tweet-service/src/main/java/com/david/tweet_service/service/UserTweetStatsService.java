@@ -0,0 +1,157 @@
+package com.david.tweet_service.service;
+
+import com.david.tweet_service.dto.response.UserTweetStatsReconciliationResponse;
+import com.david.tweet_service.dto.response.UserTweetStatsResponse;
+import com.david.tweet_service.entity.Tweet;
+import com.david.tweet_service.entity.UserTweetStats;
+import com.david.tweet_service.repository.TweetRepository;
+import com.david.tweet_service.repository.UserTweetStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserTweetStatsService {
+
+    private final UserTweetStatsRepository userTweetStatsRepository;
+    private final TweetRepository tweetRepository;
+    private final MongoTemplate mongoTemplate;
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+
+    // Called after the tweet write. A failure here leaves drift for the reconciliation job instead of failing
+    // a write that already happened
+    public void increment(String userId, long delta) {
+        try {
+            if (!userTweetStatsRepository.incrementTweetsCount(userId, delta)) {
+                // The exact count already includes the write this delta stands for
+                seed(userId);
+            }
+        } catch (DataAccessException e) {
+            log.error("UserTweetStatsService::increment - Failed to update tweet count for userId: {}. Error: {}",
+                    userId, e.getMessage());
+        }
+    }
+
+    public UserTweetStatsResponse getStats(String userId) {
+        long tweetsCount = userTweetStatsRepository.findById(userId)
+                .map(UserTweetStats::getTweetsCount)
+                .orElseGet(() -> seed(userId));
+        return UserTweetStatsResponse.builder()
+                .userId(userId)
+                .tweetsCount(tweetsCount)
+                .build();
+    }
+
+    @Scheduled(cron = "${app.tweet.user-stats.reconcile-cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public UserTweetStatsReconciliationResponse reconcileNow() {
+        return reconcile();
+    }
+
+    // One grouped pass over tweets finds users whose stored count looks off; only those are recounted exactly and
+    // fixed with a compare-and-set. A second pass zeroes users whose tweets are all gone.
+    private UserTweetStatsReconciliationResponse reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            log.info("UserTweetStatsService::reconcile - Reconciliation already running");
+            return UserTweetStatsReconciliationResponse.builder().build();
+        }
+        log.info("UserTweetStatsService::reconcile - Execution started");
+        long startedAt = System.currentTimeMillis();
+        long checkedUsers = 0;
+        long fixedUsers = 0;
+        try {
+            Aggregation aggregation = Aggregation.newAggregation(
+                            Aggregation.group("userId").count().as("tweetsCount"))
+                    .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+            try (Stream<Document> counts = mongoTemplate.aggregateStream(aggregation,
+                    mongoTemplate.getCollectionName(Tweet.class), Document.class)) {
+                Iterator<Document> iterator = counts.iterator();
+                while (iterator.hasNext()) {
+                    Document count = iterator.next();
+                    String userId = count.getString("_id");
+                    if (userId == null) {
+                        continue;
+                    }
+                    checkedUsers++;
+                    if (fixIfDrifted(userId, count.get("tweetsCount", Number.class).longValue())) {
+                        fixedUsers++;
+                    }
+                }
+            }
+            Query withTweets = Query.query(Criteria.where("tweetsCount").ne(0L));
+            try (Stream<UserTweetStats> stats = mongoTemplate.stream(withTweets, UserTweetStats.class)) {
+                Iterator<UserTweetStats> iterator = stats.iterator();
+                while (iterator.hasNext()) {
+                    UserTweetStats userStats = iterator.next();
+                    if (!tweetRepository.existsByUserId(userStats.getUserId())) {
+                        checkedUsers++;
+                        if (fixIfDrifted(userStats.getUserId(), 0)) {
+                            fixedUsers++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            reconciling.set(false);
+        }
+        long durationMs = System.currentTimeMillis() - startedAt;
+        log.info("UserTweetStatsService::reconcile - Execution ended, fixed {} of {} users in {} ms",
+                fixedUsers, checkedUsers, durationMs);
+        return UserTweetStatsReconciliationResponse.builder()
+                .checkedUsers(checkedUsers)
+                .fixedUsers(fixedUsers)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    // Users who tweeted before the stats existed get their document the first time it is needed. A user without
+    // tweets gets none, so looking up arbitrary ids creates nothing. Losing the insert race to another seed or an
+    // increment is fine, the winner's value is at least as recent
+    private long seed(String userId) {
+        long tweetsCount = tweetRepository.countByUserId(userId);
+        if (tweetsCount > 0 && userTweetStatsRepository.replaceTweetsCount(userId, null, tweetsCount)) {
+            log.info("UserTweetStatsService::seed - Seeded tweet count {} for userId: {}", tweetsCount, userId);
+        }
+        return tweetsCount;
+    }
+
+    // The grouped count is already stale by the time it is compared, so a mismatch is confirmed by reading the
+    // stored value and recounting right before the compare-and-set
+    private boolean fixIfDrifted(String userId, long approximateCount) {
+        Long stored = userTweetStatsRepository.findById(userId)
+                .map(UserTweetStats::getTweetsCount)
+                .orElse(null);
+        if (stored != null && stored == approximateCount) {
+            return false;
+        }
+        long actual = tweetRepository.countByUserId(userId);
+        if (stored != null && stored == actual) {
+            return false;
+        }
+        boolean fixed = userTweetStatsRepository.replaceTweetsCount(userId, stored, actual);
+        if (fixed) {
+            log.info("UserTweetStatsService::fixIfDrifted - Tweet count for userId: {} corrected from {} to {}",
+                    userId, stored, actual);
+        }
+        return fixed;
+    }
+}
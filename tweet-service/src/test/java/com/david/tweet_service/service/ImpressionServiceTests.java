@@ -0,0 +1,140 @@
+package com.david.tweet_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ImpressionServiceTests {
+
+	private StringRedisTemplate stringRedisTemplate;
+	private SimpleMeterRegistry meterRegistry;
+	private ImpressionService impressionService;
+
+	@BeforeEach
+	void setUp() {
+		stringRedisTemplate = mock(StringRedisTemplate.class);
+		meterRegistry = new SimpleMeterRegistry();
+		impressionService = new ImpressionService(stringRedisTemplate, meterRegistry, 2, Duration.ofDays(30));
+	}
+
+	@Test
+	void repeatedViewsDoNotChangeTheSketch() {
+		impressionService.record("viewer-1", List.of("t1"));
+		impressionService.record("viewer-2", List.of("t1"));
+		byte[] once = flushSketches().get("t1");
+
+		impressionService.record("viewer-1", List.of("t1"));
+		impressionService.record("viewer-2", List.of("t1"));
+		impressionService.record("viewer-1", List.of("t1"));
+		byte[] repeated = flushSketches().get("t1");
+
+		assertThat(repeated).isEqualTo(once);
+	}
+
+	@Test
+	void maxMergingPartialSketchesEqualsTheSketchOfTheUnion() {
+		record("a-", 0, 3000);
+		byte[] first = flushSketches().get("t1");
+		record("b-", 0, 3000);
+		byte[] second = flushSketches().get("t1");
+		record("a-", 0, 3000);
+		record("b-", 0, 3000);
+		byte[] union = flushSketches().get("t1");
+
+		assertThat(maxMerge(first, second)).isEqualTo(union);
+		assertThat(maxMerge(second, first)).isEqualTo(union);
+	}
+
+	@Test
+	void estimateStaysWithinTheExpectedErrorOfTheSketch() {
+		record("viewer-", 0, 10000);
+
+		double estimate = estimate(flushSketches().get("t1"));
+
+		// Standard error at 1024 registers is about 3.3%, so 10% is three standard errors
+		assertThat(estimate).isBetween(9000.0, 11000.0);
+	}
+
+	@Test
+	void smallCountsUseLinearCounting() {
+		record("viewer-", 0, 20);
+
+		assertThat(Math.round(estimate(flushSketches().get("t1")))).isBetween(18L, 22L);
+	}
+
+	@Test
+	void viewsOfTweetsBeyondTheCapAreDroppedUntilTheNextFlush() {
+		impressionService.record("viewer-1", List.of("t1", "t2", "t3"));
+
+		assertThat(flushSketches()).containsOnlyKeys("t1", "t2");
+		assertThat(meterRegistry.counter("tweet.impressions.dropped").count()).isEqualTo(1.0);
+
+		impressionService.record("viewer-1", List.of("t3"));
+		assertThat(flushSketches()).containsOnlyKeys("t3");
+	}
+
+	@Test
+	void anonymousViewsAreIgnored() {
+		impressionService.record(null, List.of("t1"));
+
+		assertThat(flushSketches()).isEmpty();
+	}
+
+	private void record(String prefix, int from, int to) {
+		IntStream.range(from, to).forEach(i -> impressionService.record(prefix + i, List.of("t1")));
+	}
+
+	// Runs a flush and returns the sketches it sent to Redis by tweet id
+	private Map<String, byte[]> flushSketches() {
+		Mockito.clearInvocations(stringRedisTemplate);
+		impressionService.flush();
+		Map<String, byte[]> sketches = new HashMap<>();
+		Mockito.mockingDetails(stringRedisTemplate).getInvocations().stream()
+				.filter(invocation -> invocation.getMethod().getName().equals("execute"))
+				.map(invocation -> (Object[]) invocation.getRawArguments()[2])
+				.forEach(args -> {
+					for (int i = 2; i < args.length; i += 2) {
+						sketches.put((String) args[i], ((String) args[i + 1]).getBytes(StandardCharsets.ISO_8859_1));
+					}
+				});
+		return sketches;
+	}
+
+	private static byte[] maxMerge(byte[] left, byte[] right) {
+		byte[] merged = new byte[left.length];
+		for (int i = 0; i < left.length; i++) {
+			merged[i] = (byte) Math.max(left[i], right[i]);
+		}
+		return merged;
+	}
+
+	// Same estimator as the merge script in Redis
+	private static double estimate(byte[] registers) {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += Math.pow(2, -register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double estimate = (0.7213 / (1 + 1.079 / m)) * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return estimate;
+	}
+}
@@ -0,0 +1,108 @@
+package com.david.tweet_service.service;
+
+import com.david.tweet_service.dto.response.LikeCountReconciliationResponse;
+import com.david.tweet_service.entity.Stats;
+import com.david.tweet_service.entity.Tweet;
+import com.david.tweet_service.repository.TweetLikeRepository;
+import com.david.tweet_service.repository.TweetRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class LikeCountReconciliationServiceTests {
+
+	private TweetRepository tweetRepository;
+	private TweetLikeRepository tweetLikeRepository;
+	private LikeCounterService likeCounterService;
+	private TweetCacheService tweetCacheService;
+	private MongoTemplate mongoTemplate;
+	private LikeCountReconciliationService likeCountReconciliationService;
+
+	@BeforeEach
+	void setUp() {
+		tweetRepository = mock(TweetRepository.class);
+		tweetLikeRepository = mock(TweetLikeRepository.class);
+		likeCounterService = mock(LikeCounterService.class);
+		tweetCacheService = mock(TweetCacheService.class);
+		mongoTemplate = mock(MongoTemplate.class);
+		likeCountReconciliationService = new LikeCountReconciliationService(tweetRepository, tweetLikeRepository,
+				likeCounterService, tweetCacheService, mongoTemplate);
+		when(mongoTemplate.stream(any(Query.class), eq(Tweet.class))).thenReturn(Stream.of());
+	}
+
+	@Test
+	void pendingDeltasCountTowardsTheStoredValue() {
+		groupedCounts(new Document("_id", "t1").append("likesCount", 5));
+		stored("t1", 3);
+		when(likeCounterService.readPendingDeltas(anyCollection())).thenReturn(Map.of("t1", 2L));
+
+		LikeCountReconciliationResponse response = likeCountReconciliationService.reconcileNow();
+
+		verify(tweetLikeRepository, never()).countByTweetId(anyString());
+		verify(tweetRepository, never()).replaceLikesCount(anyString(), anyLong(), anyLong());
+		assertThat(response.getFixedTweets()).isZero();
+	}
+
+	// A like whose delta was lost: the stored value plus what is pending misses it
+	@Test
+	void lostDeltaIsRestoredWithACompareAndSetLeavingPendingDeltasOnTop() {
+		groupedCounts(new Document("_id", "t1").append("likesCount", 6));
+		stored("t1", 3);
+		when(likeCounterService.readPendingDeltas(anyCollection())).thenReturn(Map.of("t1", 2L));
+		when(tweetLikeRepository.countByTweetId("t1")).thenReturn(6L);
+		when(tweetRepository.replaceLikesCount("t1", 3L, 4L)).thenReturn(true);
+
+		LikeCountReconciliationResponse response = likeCountReconciliationService.reconcileNow();
+
+		verify(tweetRepository).replaceLikesCount("t1", 3L, 4L);
+		verify(tweetCacheService).invalidate("t1");
+		assertThat(response.getFixedTweets()).isEqualTo(1);
+	}
+
+	@Test
+	void tweetWithUnreadablePendingDeltasIsLeftAlone() {
+		groupedCounts(new Document("_id", "t1").append("likesCount", 6));
+		stored("t1", 3);
+		when(likeCounterService.readPendingDeltas(anyCollection()))
+				.thenThrow(new RedisConnectionFailureException("connection refused"));
+
+		assertThat(likeCountReconciliationService.reconcileNow().getFixedTweets()).isZero();
+		verify(tweetRepository, never()).replaceLikesCount(anyString(), anyLong(), anyLong());
+	}
+
+	@Test
+	void tweetsWhoseLikesAreAllGoneAreZeroed() {
+		groupedCounts();
+		when(mongoTemplate.stream(any(Query.class), eq(Tweet.class))).thenReturn(Stream.of(Tweet.builder().id("t2").build()));
+		when(tweetLikeRepository.existsByTweetId("t2")).thenReturn(false);
+		stored("t2", 1);
+		when(likeCounterService.readPendingDeltas(anyCollection())).thenReturn(Map.of());
+		when(tweetRepository.replaceLikesCount("t2", 1L, 0L)).thenReturn(true);
+
+		assertThat(likeCountReconciliationService.reconcileNow().getFixedTweets()).isEqualTo(1);
+		verify(tweetRepository).replaceLikesCount("t2", 1L, 0L);
+	}
+
+	private void groupedCounts(Document... counts) {
+		when(mongoTemplate.aggregateStream(any(Aggregation.class), nullable(String.class), eq(Document.class)))
+				.thenReturn(Stream.of(counts));
+	}
+
+	private void stored(String tweetId, long likesCount) {
+		when(tweetRepository.findLikesCountById(tweetId)).thenReturn(Optional.of(Tweet.builder()
+				.id(tweetId)
+				.stats(Stats.builder().likesCount(likesCount).build())
+				.build()));
+	}
+}
@@ -0,0 +1,215 @@
+package com.david.tweet_service.service;
+
+import com.david.tweet_service.entity.Tweet;
+import com.david.tweet_service.repository.TweetRepository;
+import com.david.tweet_service.repository.TweetRepositoryCustomImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class LikeCounterServiceTests {
+
+	private TweetRepository tweetRepository;
+	private TweetCacheService tweetCacheService;
+	private StringRedisTemplate stringRedisTemplate;
+	private ZSetOperations<String, String> zSetOperations;
+	private HashOperations<String, Object, Object> hashOperations;
+	private SimpleMeterRegistry meterRegistry;
+	private LikeCounterService likeCounterService;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		tweetRepository = mock(TweetRepository.class);
+		tweetCacheService = mock(TweetCacheService.class);
+		stringRedisTemplate = mock(StringRedisTemplate.class);
+		zSetOperations = mock(ZSetOperations.class);
+		hashOperations = mock(HashOperations.class);
+		meterRegistry = new SimpleMeterRegistry();
+		when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+		doReturn(hashOperations).when(stringRedisTemplate).opsForHash();
+		likeCounterService = new LikeCounterService(tweetRepository, tweetCacheService, stringRedisTemplate,
+				meterRegistry, true, 1000, Duration.ofSeconds(5));
+	}
+
+	@AfterEach
+	void tearDown() {
+		likeCounterService.shutdown();
+	}
+
+	@Test
+	void flushRotatesLiveDeltasAndAppliesEveryUnappliedBatchInSequenceOrder() {
+		when(zSetOperations.range("tweet:likes:batches:unapplied", 0, -1))
+				.thenReturn(new LinkedHashSet<>(List.of("3", "4")));
+		when(hashOperations.entries("tweet:likes:batch:3")).thenReturn(Map.of("t1", "3", "t2", "0"));
+		when(hashOperations.entries("tweet:likes:batch:4")).thenReturn(Map.of("t1", "-1"));
+
+		likeCounterService.flush();
+
+		assertThat(scriptKeys().get(0))
+				.containsExactly("tweet:likes:pending", "tweet:likes:batches:seq", "tweet:likes:batches:unapplied");
+		InOrder inOrder = inOrder(tweetRepository);
+		inOrder.verify(tweetRepository).applyLikeCountBatch(3L, Map.of("t1", 3L));
+		inOrder.verify(tweetRepository).applyLikeCountBatch(4L, Map.of("t1", -1L));
+		assertThat(completedBatchIds()).containsExactly("3", "4");
+	}
+
+	@Test
+	void batchRotatedBeforeSequenceNumbersKeepsItsIdGuard() {
+		when(zSetOperations.range("tweet:likes:batches:unapplied", 0, -1)).thenReturn(Set.of("0b6f3c1e-legacy"));
+		when(hashOperations.entries("tweet:likes:batch:0b6f3c1e-legacy")).thenReturn(Map.of("t1", "2"));
+
+		likeCounterService.flush();
+
+		verify(tweetRepository).applyLegacyLikeCountBatch("0b6f3c1e-legacy", Map.of("t1", 2L));
+		verify(tweetRepository, never()).applyLikeCountBatch(anyLong(), anyMap());
+	}
+
+	@Test
+	void failedBatchStopsTheFlushBeforeLaterBatches() {
+		when(zSetOperations.range("tweet:likes:batches:unapplied", 0, -1))
+				.thenReturn(new LinkedHashSet<>(List.of("3", "4")));
+		when(hashOperations.entries("tweet:likes:batch:3")).thenReturn(Map.of("t1", "1"));
+		when(hashOperations.entries("tweet:likes:batch:4")).thenReturn(Map.of("t1", "1"));
+		doThrow(new DataAccessResourceFailureException("mongo down"))
+				.when(tweetRepository).applyLikeCountBatch(eq(3L), anyMap());
+
+		likeCounterService.flush();
+
+		verify(tweetRepository, never()).applyLikeCountBatch(eq(4L), anyMap());
+		assertThat(completedBatchIds()).isEmpty();
+	}
+
+	@Test
+	void batchIsOnlyCompletedAfterItsMongoWrite() {
+		when(zSetOperations.range("tweet:likes:batches:unapplied", 0, -1)).thenReturn(Set.of("7"));
+		when(hashOperations.entries("tweet:likes:batch:7")).thenReturn(Map.of("t1", "2"));
+
+		likeCounterService.flush();
+
+		InOrder inOrder = inOrder(tweetRepository, tweetCacheService, stringRedisTemplate);
+		inOrder.verify(tweetRepository).applyLikeCountBatch(7L, Map.of("t1", 2L));
+		inOrder.verify(tweetCacheService).invalidate(Set.of("t1"));
+		inOrder.verify(stringRedisTemplate).execute(any(RedisScript.class),
+				eq(List.of("tweet:likes:batches:unapplied", "tweet:likes:batches:applied", "tweet:likes:batch:7")),
+				any(Object[].class));
+	}
+
+	@Test
+	void failedBatchStaysUnappliedAndIsRetriedUnderTheSameSequenceNumber() {
+		when(zSetOperations.range("tweet:likes:batches:unapplied", 0, -1)).thenReturn(Set.of("7"));
+		when(hashOperations.entries("tweet:likes:batch:7")).thenReturn(Map.of("t1", "2"));
+		doThrow(new DataAccessResourceFailureException("mongo down"))
+				.doNothing()
+				.when(tweetRepository).applyLikeCountBatch(anyLong(), anyMap());
+
+		likeCounterService.flush();
+
+		assertThat(completedBatchIds()).isEmpty();
+		assertThat(meterRegistry.counter("tweet.likes.flush.failures").count()).isEqualTo(1.0);
+
+		likeCounterService.flush();
+
+		verify(tweetRepository, times(2)).applyLikeCountBatch(7L, Map.of("t1", 2L));
+		assertThat(completedBatchIds()).containsExactly("7");
+	}
+
+	@Test
+	void reappliedBatchIsSkippedByTweetsThatAlreadyReachedIt() {
+		MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+		BulkOperations bulkOperations = mock(BulkOperations.class);
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Tweet.class)).thenReturn(bulkOperations);
+
+		new TweetRepositoryCustomImpl(mongoTemplate).applyLikeCountBatch(7L, Map.of("t1", 2L));
+
+		Invocation updateOne = Mockito.mockingDetails(bulkOperations).getInvocations().stream()
+				.filter(invocation -> invocation.getMethod().getName().equals("updateOne"))
+				.findFirst()
+				.orElseThrow();
+		Document filter = ((Query) updateOne.getArgument(0)).getQueryObject();
+		Document update = ((UpdateDefinition) updateOne.getArgument(1)).getUpdateObject();
+		assertThat(filter).containsEntry("_id", "t1");
+		assertThat(filter.get("lastAppliedLikeBatch", Document.class).get("$not", Document.class)).containsEntry("$gte", 7L);
+		assertThat(update.get("$inc", Document.class)).containsEntry("stats.likesCount", 2L);
+		assertThat(update.get("$set", Document.class)).containsEntry("lastAppliedLikeBatch", 7L);
+		verify(bulkOperations).execute();
+	}
+
+	@Test
+	void pendingDeltasSkipBatchesTheDocumentAlreadyCounts() {
+		Tweet counted = Tweet.builder().id("t1").lastAppliedLikeBatch(5L).build();
+		Tweet uncounted = Tweet.builder().id("t2").build();
+		when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of(
+				Arrays.asList("1", null),
+				"5", Arrays.asList("5", "4"),
+				"6", Arrays.asList("7", null)));
+
+		Map<String, Long> pending = likeCounterService.pendingDeltas(List.of(counted, uncounted));
+
+		assertThat(pending).containsEntry("t1", 8L).containsEntry("t2", 4L);
+	}
+
+	@Test
+	void likeGoesStraightToMongoWhenRedisWasNeverReached() {
+		when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+				.thenThrow(new RedisConnectionFailureException("connection refused"));
+
+		likeCounterService.record("t1", 1);
+
+		verify(tweetRepository).incrementLikesCount("t1", 1);
+		verify(tweetCacheService).invalidate("t1");
+	}
+
+	@Test
+	void likeThatMayHaveReachedRedisIsRetriedRatherThanAppliedTwice() {
+		when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+				.thenThrow(new QueryTimeoutException("timed out"));
+
+		likeCounterService.record("t1", 1);
+
+		verify(tweetRepository, never()).incrementLikesCount(anyString(), anyLong());
+		assertThat(meterRegistry.counter("tweet.likes.record.retries").count()).isEqualTo(1.0);
+		List<List<String>> keys = scriptKeys();
+		assertThat(keys).hasSize(2);
+		// Both attempts carry the same op id, so whichever landed is the only one counted
+		assertThat(keys.get(0)).isEqualTo(keys.get(1));
+		assertThat(keys.get(0).get(1)).startsWith("tweet:likes:op:");
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<List<String>> scriptKeys() {
+		return Mockito.mockingDetails(stringRedisTemplate).getInvocations().stream()
+				.filter(invocation -> invocation.getMethod().getName().equals("execute"))
+				.map(invocation -> (List<String>) invocation.getRawArguments()[1])
+				.toList();
+	}
+
+	private List<String> completedBatchIds() {
+		return scriptKeys().stream()
+				.filter(keys -> keys.get(0).equals("tweet:likes:batches:unapplied"))
+				.map(keys -> keys.get(2).substring("tweet:likes:batch:".length()))
+				.toList();
+	}
+}
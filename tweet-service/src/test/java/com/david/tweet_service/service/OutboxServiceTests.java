@@ -0,0 +1,216 @@
+package com.david.tweet_service.service;
+
+import com.david.common.dto.ApiEventMessage;
+import com.david.tweet_service.entity.OutboxEvent;
+import com.david.tweet_service.entity.Tweet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OutboxServiceTests {
+
+	private static final Duration CLAIM_LEASE = Duration.ofSeconds(30);
+
+	private MongoTemplate mongoTemplate;
+	private RabbitTemplate rabbitTemplate;
+	private RabbitOperations rabbitOperations;
+	private SimpleMeterRegistry meterRegistry;
+	private OutboxService outboxService;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		mongoTemplate = mock(MongoTemplate.class);
+		rabbitTemplate = mock(RabbitTemplate.class);
+		rabbitOperations = mock(RabbitOperations.class);
+		meterRegistry = new SimpleMeterRegistry();
+		outboxService = new OutboxService(mongoTemplate, rabbitTemplate, meterRegistry, 100, 3, CLAIM_LEASE,
+				Duration.ofSeconds(5), Duration.ofMinutes(5));
+		when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocation ->
+				invocation.<RabbitOperations.OperationsCallback<Object>>getArgument(0).doInRabbit(rabbitOperations));
+	}
+
+	@Test
+	void preparedEventsOnlyBecomePendingOnCommit() {
+		when(mongoTemplate.insert(any(OutboxEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		OutboxEvent event = outboxService.prepare("tweet.created", "tweet-1", "TWEET_CREATED", "payload");
+
+		assertThat(event.getStatus()).isEqualTo(OutboxEvent.Status.PREPARED);
+		assertThat(event.getMessage().getEventId()).isNotBlank();
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(OutboxEvent.class));
+
+		event.setId("event-1");
+		outboxService.commit(event);
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(OutboxEvent.class));
+		assertThat(query.getValue().getQueryObject()).containsEntry("_id", "event-1");
+		assertThat(set(update.getValue())).containsEntry("status", OutboxEvent.Status.PENDING);
+	}
+
+	@Test
+	void relayClaimsOnlyUnleasedPendingEventsAndMarksThemSentAfterConfirms() {
+		OutboxEvent event = event("event-1", "TWEET_CREATED");
+		stubClaim(List.of(event));
+		long before = System.currentTimeMillis();
+
+		outboxService.relay();
+
+		ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate, times(2)).updateMulti(queries.capture(), updates.capture(), eq(OutboxEvent.class));
+
+		Document claimFilter = queries.getAllValues().get(0).getQueryObject();
+		assertThat(claimFilter).containsEntry("status", OutboxEvent.Status.PENDING).containsKey("claimedUntil");
+		Document claim = set(updates.getAllValues().get(0));
+		String claimToken = claim.getString("claimToken");
+		assertThat(claimToken).isNotBlank();
+		assertThat(claim.getLong("claimedUntil")).isGreaterThanOrEqualTo(before + CLAIM_LEASE.toMillis());
+		assertThat(updates.getAllValues().get(0).getUpdateObject().get("$inc", Document.class)).containsEntry("attempts", 1);
+
+		verify(rabbitOperations).convertAndSend("tweet.created", event.getMessage());
+		verify(rabbitOperations).waitForConfirmsOrDie(5000L);
+
+		assertThat(queries.getAllValues().get(1).getQueryObject()).containsEntry("claimToken", claimToken);
+		assertThat(queries.getAllValues().get(1).getQueryObject().get("_id", Document.class).getList("$in", String.class))
+				.containsExactly("event-1");
+		UpdateDefinition sent = updates.getAllValues().get(1);
+		assertThat(set(sent)).containsEntry("status", OutboxEvent.Status.SENT).containsKey("sentAt");
+		assertThat(sent.getUpdateObject().get("$unset", Document.class)).containsKey("claimToken");
+		assertThat(meterRegistry.counter("tweet.outbox.published").count()).isEqualTo(1.0);
+	}
+
+	@Test
+	void failedPublishLeavesTheClaimToLapse() {
+		stubClaim(List.of(event("event-1", "TWEET_CREATED")));
+		doThrow(new AmqpIOException(new IOException("channel closed"))).when(rabbitOperations).waitForConfirmsOrDie(anyLong());
+
+		outboxService.relay();
+
+		// Only the claim itself; the event stays PENDING and is picked up again once claimedUntil passes
+		verify(mongoTemplate, times(1)).updateMulti(any(Query.class), any(UpdateDefinition.class), eq(OutboxEvent.class));
+		assertThat(meterRegistry.counter("tweet.outbox.publish.failures").count()).isEqualTo(1.0);
+	}
+
+	@Test
+	void poisonEventIsPublishedAroundAndParkedOnceItRunsOutOfAttempts() {
+		OutboxEvent healthy = event("event-1", "TWEET_CREATED");
+		OutboxEvent poison = event("event-2", "TWEET_CREATED");
+		poison.setAttempts(3);
+		stubClaim(List.of(healthy, poison));
+		doThrow(new MessageConversionException("unserializable payload"))
+				.when(rabbitOperations).convertAndSend("tweet.created", poison.getMessage());
+
+		outboxService.relay();
+
+		ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate, times(3)).updateMulti(queries.capture(), updates.capture(), eq(OutboxEvent.class));
+		assertThat(queries.getAllValues().get(1).getQueryObject().get("_id", Document.class).getList("$in", String.class))
+				.containsExactly("event-1");
+		assertThat(set(updates.getAllValues().get(1))).containsEntry("status", OutboxEvent.Status.SENT);
+		assertThat(queries.getAllValues().get(2).getQueryObject().get("_id", Document.class).getList("$in", String.class))
+				.containsExactly("event-2");
+		assertThat(set(updates.getAllValues().get(2))).containsEntry("status", OutboxEvent.Status.FAILED);
+		assertThat(meterRegistry.counter("tweet.outbox.published").count()).isEqualTo(1.0);
+		assertThat(meterRegistry.counter("tweet.outbox.parked").count()).isEqualTo(1.0);
+	}
+
+	@Test
+	void eventsClaimedByAnotherRelayAreNotPublished() {
+		stubClaim(List.of());
+
+		outboxService.relay();
+
+		verifyNoInteractions(rabbitTemplate);
+		verify(mongoTemplate, times(1)).updateMulti(any(Query.class), any(UpdateDefinition.class), eq(OutboxEvent.class));
+	}
+
+	@Test
+	void abandonedPreparedEventIsCommittedWhenItsWriteHappened() {
+		when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenReturn(List.of(event("event-1", "TWEET_CREATED")));
+		when(mongoTemplate.exists(any(Query.class), eq(Tweet.class))).thenReturn(true);
+
+		outboxService.recoverPrepared();
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(OutboxEvent.class));
+		assertThat(query.getValue().getQueryObject())
+				.containsEntry("_id", "event-1")
+				.containsEntry("status", OutboxEvent.Status.PREPARED);
+		assertThat(set(update.getValue())).containsEntry("status", OutboxEvent.Status.PENDING);
+		verify(mongoTemplate, never()).remove(any(Query.class), eq(OutboxEvent.class));
+	}
+
+	@Test
+	void abandonedPreparedEventIsDroppedWhenItsWriteNeverHappened() {
+		when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenReturn(List.of(event("event-1", "TWEET_CREATED")));
+		when(mongoTemplate.exists(any(Query.class), eq(Tweet.class))).thenReturn(false);
+
+		outboxService.recoverPrepared();
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).remove(query.capture(), eq(OutboxEvent.class));
+		assertThat(query.getValue().getQueryObject()).containsEntry("status", OutboxEvent.Status.PREPARED);
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(OutboxEvent.class));
+	}
+
+	@Test
+	void abandonedDeleteIsCommittedOnceTheTweetIsGone() {
+		when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenReturn(List.of(event("event-1", "TWEET_DELETED")));
+		when(mongoTemplate.exists(any(Query.class), eq(Tweet.class))).thenReturn(false);
+
+		outboxService.recoverPrepared();
+
+		verify(mongoTemplate).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(OutboxEvent.class));
+		verify(mongoTemplate, never()).remove(any(Query.class), eq(OutboxEvent.class));
+	}
+
+	// The candidate lookup returns the event ids; the lookup by claim token returns whatever this relay won
+	private void stubClaim(List<OutboxEvent> claimed) {
+		when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenAnswer(invocation -> {
+			Query query = invocation.getArgument(0);
+			return query.getQueryObject().containsKey("claimToken") ? claimed : List.of(event("event-1", "TWEET_CREATED"));
+		});
+	}
+
+	private static Document set(UpdateDefinition update) {
+		return update.getUpdateObject().get("$set", Document.class);
+	}
+
+	private static OutboxEvent event(String id, String eventType) {
+		return OutboxEvent.builder()
+				.id(id)
+				.routingKey("tweet.created")
+				.aggregateId("tweet-1")
+				.message(ApiEventMessage.builder()
+						.eventId("message-" + id)
+						.eventType(eventType)
+						.payload("payload")
+						.build())
+				.status(OutboxEvent.Status.PENDING)
+				.createdAt(System.currentTimeMillis())
+				.build();
+	}
+}
@@ -0,0 +1,178 @@
+package com.david.tweet_service.service;
+
+import com.david.tweet_service.dto.response.TrendingHashtagResponse;
+import com.david.tweet_service.entity.HashtagBucketSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TrendingHashtagServiceTests {
+
+	private static final int WIDTH = 2048;
+
+	private MongoTemplate mongoTemplate;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate = mock(MongoTemplate.class);
+	}
+
+	@Test
+	void countsEachHashtagOncePerTweetAfterNormalizing() {
+		TrendingHashtagService service = newService(10);
+
+		service.record(List.of("#Java", "java ", "JAVA"), System.currentTimeMillis());
+		service.record(List.of("#java"), System.currentTimeMillis());
+		service.refresh();
+
+		assertThat(service.getTrending(10)).extracting(TrendingHashtagResponse::getHashtag).containsExactly("java");
+		assertThat(service.getTrending(10).get(0).getCount()).isEqualTo(2);
+	}
+
+	@Test
+	void keepsOnlyTheTopKHashtagsInCountOrder() {
+		TrendingHashtagService service = newService(2);
+
+		recordTimes(service, "alpha", 5);
+		recordTimes(service, "beta", 3);
+		recordTimes(service, "gamma", 1);
+		service.refresh();
+
+		assertThat(service.getTrending(10)).extracting(TrendingHashtagResponse::getHashtag)
+				.containsExactly("alpha", "beta");
+		assertThat(service.getTrending(10)).extracting(TrendingHashtagResponse::getCount).containsExactly(5L, 3L);
+	}
+
+	@Test
+	void aLateRiserDisplacesTheCurrentMinimum() {
+		TrendingHashtagService service = newService(2);
+
+		recordTimes(service, "alpha", 2);
+		recordTimes(service, "beta", 1);
+		recordTimes(service, "gamma", 4);
+		service.refresh();
+
+		assertThat(service.getTrending(10)).extracting(TrendingHashtagResponse::getHashtag)
+				.containsExactly("gamma", "alpha");
+	}
+
+	@Test
+	void estimatesNeverUndercount() {
+		TrendingHashtagService service = newService(500);
+		Map<String, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 300; i++) {
+			String hashtag = "tag" + i;
+			int times = 1 + i % 7;
+			recordTimes(service, hashtag, times);
+			expected.put(hashtag, times);
+		}
+		service.refresh();
+
+		assertThat(service.getTrending(500)).hasSize(300)
+				.allSatisfy(trend -> assertThat(trend.getCount()).isGreaterThanOrEqualTo(expected.get(trend.getHashtag())));
+	}
+
+	@Test
+	void ignoresTweetsOutsideTheWindow() {
+		TrendingHashtagService service = newService(10);
+
+		service.record(List.of("old"), System.currentTimeMillis() - Duration.ofHours(2).toMillis());
+		service.record(List.of("future"), System.currentTimeMillis() + Duration.ofHours(2).toMillis());
+		service.refresh();
+
+		assertThat(service.getTrending(10)).isEmpty();
+	}
+
+	@Test
+	void restoreReplacesBucketsInsteadOfAddingToThem() {
+		TrendingHashtagService source = newService(10);
+		recordTimes(source, "java", 3);
+		source.snapshot();
+		ArgumentCaptor<HashtagBucketSnapshot> saved = ArgumentCaptor.forClass(HashtagBucketSnapshot.class);
+		verify(mongoTemplate).save(saved.capture());
+
+		MongoTemplate restoreTemplate = mock(MongoTemplate.class);
+		when(restoreTemplate.find(any(Query.class), eq(HashtagBucketSnapshot.class))).thenReturn(List.of(saved.getValue()));
+		TrendingHashtagService restored = newService(restoreTemplate, 10);
+		restored.restore();
+		restored.restore();
+
+		assertThat(restored.getTrending(10)).extracting(TrendingHashtagResponse::getCount).containsExactly(3L);
+	}
+
+	@Test
+	void restoreSkipsSnapshotsCountedWithAnotherHash() {
+		TrendingHashtagService source = newService(10);
+		recordTimes(source, "java", 3);
+		source.snapshot();
+		ArgumentCaptor<HashtagBucketSnapshot> saved = ArgumentCaptor.forClass(HashtagBucketSnapshot.class);
+		verify(mongoTemplate).save(saved.capture());
+		saved.getValue().setHashVersion(TrendingHashtagService.HASH_VERSION - 1);
+
+		MongoTemplate restoreTemplate = mock(MongoTemplate.class);
+		when(restoreTemplate.find(any(Query.class), eq(HashtagBucketSnapshot.class))).thenReturn(List.of(saved.getValue()));
+		TrendingHashtagService restored = newService(restoreTemplate, 10);
+		restored.restore();
+
+		assertThat(restored.getTrending(10)).isEmpty();
+	}
+
+	@Test
+	void murmur3MatchesForEqualInputsAndDependsOnTheSeed() {
+		assertThat(TrendingHashtagService.murmur3("java", 1)).isEqualTo(TrendingHashtagService.murmur3("java", 1));
+		assertThat(TrendingHashtagService.murmur3("java", 1)).isNotEqualTo(TrendingHashtagService.murmur3("java", 2));
+		assertThat(TrendingHashtagService.murmur3("ab", 1)).isNotEqualTo(TrendingHashtagService.murmur3("ba", 1));
+	}
+
+	// Of all pairs that share a cell in one row, only about 1 / width should share a cell in the next row too;
+	// correlated row hashes would keep most of those collisions together
+	@Test
+	void rowHashesCollideIndependently() {
+		List<String> hashtags = IntStream.range(0, 20000).mapToObj(i -> "tag" + i).toList();
+		Map<Integer, List<Integer>> secondRowCellsByFirstRowCell = new HashMap<>();
+		for (String hashtag : hashtags) {
+			int first = Math.floorMod(TrendingHashtagService.murmur3(hashtag, 0x9747b28c), WIDTH);
+			int second = Math.floorMod(TrendingHashtagService.murmur3(hashtag, 0x9747b28c * 2), WIDTH);
+			secondRowCellsByFirstRowCell.computeIfAbsent(first, cell -> new ArrayList<>()).add(second);
+		}
+		long firstRowCollisions = 0;
+		long bothRowCollisions = 0;
+		for (List<Integer> secondRowCells : secondRowCellsByFirstRowCell.values()) {
+			firstRowCollisions += (long) secondRowCells.size() * (secondRowCells.size() - 1) / 2;
+			Map<Integer, Long> counts = new HashMap<>();
+			secondRowCells.forEach(cell -> counts.merge(cell, 1L, Long::sum));
+			bothRowCollisions += counts.values().stream().mapToLong(count -> count * (count - 1) / 2).sum();
+		}
+
+		assertThat(firstRowCollisions).isGreaterThan(50000);
+		assertThat(bothRowCollisions).isLessThan(4 * firstRowCollisions / WIDTH);
+	}
+
+	private TrendingHashtagService newService(int topK) {
+		return newService(mongoTemplate, topK);
+	}
+
+	private static TrendingHashtagService newService(MongoTemplate mongoTemplate, int topK) {
+		return new TrendingHashtagService(mongoTemplate, Duration.ofMinutes(5), Duration.ofHours(1), 4, WIDTH, topK);
+	}
+
+	private static void recordTimes(TrendingHashtagService service, String hashtag, int times) {
+		for (int i = 0; i < times; i++) {
+			service.record(List.of(hashtag), System.currentTimeMillis());
+		}
+	}
+}
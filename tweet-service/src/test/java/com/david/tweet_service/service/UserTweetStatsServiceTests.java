@@ -0,0 +1,156 @@
+package com.david.tweet_service.service;
+
+import com.david.tweet_service.dto.response.UserTweetStatsReconciliationResponse;
+import com.david.tweet_service.entity.UserTweetStats;
+import com.david.tweet_service.repository.TweetRepository;
+import com.david.tweet_service.repository.UserTweetStatsRepository;
+import com.david.tweet_service.repository.UserTweetStatsRepositoryCustomImpl;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class UserTweetStatsServiceTests {
+
+	private UserTweetStatsRepository userTweetStatsRepository;
+	private TweetRepository tweetRepository;
+	private MongoTemplate mongoTemplate;
+	private UserTweetStatsService userTweetStatsService;
+
+	@BeforeEach
+	void setUp() {
+		userTweetStatsRepository = mock(UserTweetStatsRepository.class);
+		tweetRepository = mock(TweetRepository.class);
+		mongoTemplate = mock(MongoTemplate.class);
+		userTweetStatsService = new UserTweetStatsService(userTweetStatsRepository, tweetRepository, mongoTemplate);
+	}
+
+	@Test
+	void matchingCountIsNotRecounted() {
+		groupedCounts(new Document("_id", "u1").append("tweetsCount", 5));
+		stored("u1", 5);
+
+		UserTweetStatsReconciliationResponse response = userTweetStatsService.reconcileNow();
+
+		verify(tweetRepository, never()).countByUserId(anyString());
+		verify(userTweetStatsRepository, never()).replaceTweetsCount(anyString(), any(), anyLong());
+		assertThat(response.getFixedUsers()).isZero();
+	}
+
+	@Test
+	void driftedCountIsReplacedOnlyIfStillTheValueThatWasRead() {
+		groupedCounts(new Document("_id", "u1").append("tweetsCount", 5));
+		stored("u1", 3);
+		when(tweetRepository.countByUserId("u1")).thenReturn(5L);
+		when(userTweetStatsRepository.replaceTweetsCount("u1", 3L, 5)).thenReturn(true);
+
+		UserTweetStatsReconciliationResponse response = userTweetStatsService.reconcileNow();
+
+		verify(userTweetStatsRepository).replaceTweetsCount("u1", 3L, 5);
+		assertThat(response.getCheckedUsers()).isEqualTo(1);
+		assertThat(response.getFixedUsers()).isEqualTo(1);
+	}
+
+	// The grouped count is stale: a delete landed after it, and the exact recount agrees with the stored value
+	@Test
+	void staleGroupedCountIsConfirmedBeforeWriting() {
+		groupedCounts(new Document("_id", "u1").append("tweetsCount", 5));
+		stored("u1", 4);
+		when(tweetRepository.countByUserId("u1")).thenReturn(4L);
+
+		UserTweetStatsReconciliationResponse response = userTweetStatsService.reconcileNow();
+
+		verify(userTweetStatsRepository, never()).replaceTweetsCount(anyString(), any(), anyLong());
+		assertThat(response.getFixedUsers()).isZero();
+	}
+
+	@Test
+	void lostCompareAndSetIsNotCountedAsFixed() {
+		groupedCounts(new Document("_id", "u1").append("tweetsCount", 5));
+		stored("u1", 3);
+		when(tweetRepository.countByUserId("u1")).thenReturn(5L);
+		when(userTweetStatsRepository.replaceTweetsCount("u1", 3L, 5)).thenReturn(false);
+
+		assertThat(userTweetStatsService.reconcileNow().getFixedUsers()).isZero();
+	}
+
+	@Test
+	void usersWhoseTweetsAreAllGoneAreZeroed() {
+		groupedCounts();
+		when(mongoTemplate.stream(any(Query.class), eq(UserTweetStats.class)))
+				.thenReturn(Stream.of(UserTweetStats.builder().userId("u2").tweetsCount(2).build()));
+		when(tweetRepository.existsByUserId("u2")).thenReturn(false);
+		stored("u2", 2);
+		when(userTweetStatsRepository.replaceTweetsCount("u2", 2L, 0)).thenReturn(true);
+
+		UserTweetStatsReconciliationResponse response = userTweetStatsService.reconcileNow();
+
+		verify(userTweetStatsRepository).replaceTweetsCount("u2", 2L, 0);
+		assertThat(response.getFixedUsers()).isEqualTo(1);
+	}
+
+	@Test
+	void incrementSeedsAMissingDocumentFromTheExactCount() {
+		when(userTweetStatsRepository.incrementTweetsCount("u1", 1)).thenReturn(false);
+		when(tweetRepository.countByUserId("u1")).thenReturn(7L);
+
+		userTweetStatsService.increment("u1", 1);
+
+		// The count already includes the tweet the delta stands for, so it is not added on top
+		verify(userTweetStatsRepository).replaceTweetsCount("u1", null, 7);
+	}
+
+	@Test
+	void statsOfAUserWithoutTweetsCreateNothing() {
+		when(userTweetStatsRepository.findById("nobody")).thenReturn(Optional.empty());
+
+		assertThat(userTweetStatsService.getStats("nobody").getTweetsCount()).isZero();
+		verify(userTweetStatsRepository, never()).replaceTweetsCount(anyString(), any(), anyLong());
+	}
+
+	@Test
+	void replaceTweetsCountFiltersOnTheExpectedCount() {
+		UserTweetStatsRepositoryCustomImpl repository = new UserTweetStatsRepositoryCustomImpl(mongoTemplate);
+		when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(UserTweetStats.class)))
+				.thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+		assertThat(repository.replaceTweetsCount("u1", 3L, 5)).isFalse();
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).updateFirst(query.capture(), any(UpdateDefinition.class), eq(UserTweetStats.class));
+		assertThat(query.getValue().getQueryObject()).containsEntry("_id", "u1").containsEntry("tweetsCount", 3L);
+	}
+
+	@Test
+	void replaceTweetsCountWithoutADocumentLosesToAConcurrentInsert() {
+		UserTweetStatsRepositoryCustomImpl repository = new UserTweetStatsRepositoryCustomImpl(mongoTemplate);
+		when(mongoTemplate.insert(any(UserTweetStats.class))).thenThrow(new DuplicateKeyException("E11000"));
+
+		assertThat(repository.replaceTweetsCount("u1", null, 5)).isFalse();
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(UserTweetStats.class));
+	}
+
+	private void groupedCounts(Document... counts) {
+		when(mongoTemplate.aggregateStream(any(Aggregation.class), nullable(String.class), eq(Document.class)))
+				.thenReturn(Stream.of(counts));
+	}
+
+	private void stored(String userId, long tweetsCount) {
+		when(userTweetStatsRepository.findById(userId)).thenReturn(Optional.of(UserTweetStats.builder()
+				.userId(userId)
+				.tweetsCount(tweetsCount)
+				.build()));
+	}
+}